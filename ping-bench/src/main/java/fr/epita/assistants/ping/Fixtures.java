@@ -0,0 +1,69 @@
+package fr.epita.assistants.ping;
+
+import fr.epita.assistants.ping.data.model.ProjectModel;
+import fr.epita.assistants.ping.data.model.UserModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Detached entities and on-disk trees shaped like the ones the service sees in production.
+ */
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    public static UserModel user(int n, boolean admin) {
+        UserModel user = new UserModel();
+        user.setId(UUID.randomUUID());
+        user.setLogin("student" + n + ".doe");
+        user.setPassword("password");
+        user.setDisplayName("Student" + n + " Doe");
+        user.setAvatar("");
+        user.setIsAdmin(admin);
+        return user;
+    }
+
+    /**
+     * A project owned by a fresh user with {@code members} members (the owner included).
+     */
+    public static ProjectModel project(int members) {
+        UserModel owner = user(0, false);
+        ProjectModel project = new ProjectModel();
+        project.setId(UUID.randomUUID());
+        project.setName("project");
+        project.setPath("/tmp/ping/projects/" + project.getId());
+        project.setOwner(owner);
+        project.getMembers().add(owner);
+        for (int i = 1; i < members; i++) {
+            project.getMembers().add(user(i, false));
+        }
+        return project;
+    }
+
+    /**
+     * Creates {@code files} files spread over sub-directories of {@code perDirectory} entries.
+     */
+    public static void tree(Path root, int files, int perDirectory) throws IOException {
+        for (int i = 0; i < files; i++) {
+            Path dir = root.resolve("dir" + (i / perDirectory));
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve("file" + i + ".txt"), "content of file " + i + "\n");
+        }
+    }
+
+    public static void deleteTree(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileResource.getFile body: the {@link FileChannelOutput} transfer against the former
+ * {@code Files.readAllBytes} buffer, both written into a null sink. Run with {@code -prof gc}
+ * to compare the allocation per download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class FileDownloadBenchmark {
+
+    @Param({"65536", "16777216", "209715200"})
+    int size;
+
+    Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("ping-bench-download", ".bin");
+        byte[] block = new byte[1 << 20];
+        try (OutputStream output = Files.newOutputStream(file)) {
+            for (int left = size; left > 0; left -= block.length) {
+                output.write(block, 0, Math.min(left, block.length));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void transfer() throws IOException {
+        new FileChannelOutput(file, 0, size, bytes -> {}).write(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void readAllBytes() throws IOException {
+        OutputStream.nullOutputStream().write(Files.readAllBytes(file));
+    }
+}
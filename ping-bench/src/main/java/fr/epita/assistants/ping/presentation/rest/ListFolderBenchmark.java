@@ -0,0 +1,52 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.epita.assistants.ping.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Directory listing of FolderResource.listFolder on a single flat directory, streamed to JSON
+ * the way the endpoint writes it (into a null sink, so only listing and serialization are measured).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListFolderBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    int entries;
+
+    FolderResource resource;
+    ObjectMapper mapper;
+    Path projectPath;
+    Path folderPath;
+
+    @Setup
+    public void setup() throws IOException {
+        resource = new FolderResource();
+        mapper = new ObjectMapper();
+        projectPath = Files.createTempDirectory("ping-bench-folder");
+        Fixtures.tree(projectPath, entries, Integer.MAX_VALUE);
+        folderPath = projectPath.resolve("dir0");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.deleteTree(projectPath);
+    }
+
+    @Benchmark
+    public void listEntries() throws IOException {
+        new JsonArrayOutput(mapper, 256, sink -> resource.writeEntries(projectPath, folderPath, sink))
+                .write(OutputStream.nullOutputStream());
+    }
+}
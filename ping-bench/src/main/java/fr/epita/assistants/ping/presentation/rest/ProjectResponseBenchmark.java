@@ -0,0 +1,37 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.Fixtures;
+import fr.epita.assistants.ping.data.dto.ProjectResponse;
+import fr.epita.assistants.ping.data.model.ProjectModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping of one project, as done for every element of the project listings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectResponseBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    int members;
+
+    ProjectResource resource;
+    ProjectModel project;
+
+    @Setup
+    public void setup() {
+        resource = new ProjectResource();
+        project = Fixtures.project(members);
+    }
+
+    @Benchmark
+    public ProjectResponse toProjectResponse() {
+        return resource.toProjectResponse(project);
+    }
+}
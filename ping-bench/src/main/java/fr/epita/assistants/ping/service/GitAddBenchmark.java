@@ -0,0 +1,48 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.Fixtures;
+import fr.epita.assistants.ping.data.dto.ExecFeatureRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code git add} with a wildcard on a project tree of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GitAddBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    int files;
+
+    GitExecutor git;
+    Path root;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        git = new GitExecutor();
+        git.metrics = new MetricsRegistry();
+        root = Files.createTempDirectory("ping-bench-git");
+        Fixtures.tree(root, files, 100);
+        git.execute(root.toFile(), new ExecFeatureRequest("git", "init", List.of()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        Fixtures.deleteTree(root);
+    }
+
+    @Benchmark
+    public void addWildcard() {
+        git.execute(root.toFile(), new ExecFeatureRequest("git", "add", List.of("*.txt")));
+    }
+}
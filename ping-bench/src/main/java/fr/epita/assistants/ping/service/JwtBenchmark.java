@@ -0,0 +1,36 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.Fixtures;
+import fr.epita.assistants.ping.data.model.UserModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RS256 token signing done on every login and refresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dsmallrye.jwt.sign.key.location=privatekey.pem",
+        "-Dmp.jwt.verify.issuer=ping-api"
+})
+public class JwtBenchmark {
+
+    JwtService jwtService;
+    UserModel user;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService();
+        user = Fixtures.user(1, false);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+}
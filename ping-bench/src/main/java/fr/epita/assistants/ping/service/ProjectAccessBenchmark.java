@@ -0,0 +1,47 @@
+package fr.epita.assistants.ping.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access check done on every project, file and folder request once the decision is in the
+ * {@link ProjectAccessCache}, and the cost of a miss on top of the query (which is not measured here).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectAccessBenchmark {
+
+    ProjectAccessCache cache;
+    UUID projectId;
+    UUID userId;
+    ProjectAccess access;
+
+    @Setup
+    public void setup() {
+        cache = new ProjectAccessCache();
+        cache.maxSize = 10_000;
+        cache.ttlSeconds = 300;
+        cache.init();
+        projectId = UUID.randomUUID();
+        userId = UUID.randomUUID();
+        access = new ProjectAccess(projectId, "/tmp/ping/projects/" + projectId, userId, true);
+        cache.get(projectId, userId, (p, u) -> access);
+    }
+
+    @Benchmark
+    public ProjectAccess hit() {
+        return cache.get(projectId, userId, (p, u) -> access);
+    }
+
+    @Benchmark
+    public ProjectAccess miss() {
+        cache.invalidate(projectId, userId);
+        return cache.get(projectId, userId, (p, u) -> access);
+    }
+}
@@ -0,0 +1,74 @@
+package fr.epita.assistants.ping.utils;
+
+import fr.epita.assistants.ping.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one log line on the request thread: the shared async {@link Logger} against the
+ * per-call SimpleDateFormat + FileWriter the resources used before (kept here as the baseline).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+
+    Path dir;
+    Logger logger;
+    String legacyFile;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("ping-bench-log");
+        logger = new Logger();
+        logger.logFile = dir.resolve("app.log").toString();
+        logger.errorLogFile = dir.resolve("error.log").toString();
+        logger.bufferSize = 8192;
+        logger.fsyncPolicy = Logger.FsyncPolicy.NONE;
+        logger.fsyncIntervalMs = 1000;
+        logger.maxFileSize = 0;
+        logger.maxFiles = 0;
+        logger.overflowPolicy = Logger.OverflowPolicy.BLOCK;
+        logger.start();
+        legacyFile = dir.resolve("legacy.log").toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        logger.stop();
+        Fixtures.deleteTree(dir);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void asyncLogger() {
+        logger.info("User 00000000-0000-0000-0000-000000000001 accessed file src/Main.java in project "
+                + "00000000-0000-0000-0000-000000000002");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void legacyFileWriter() {
+        legacyLog("User 00000000-0000-0000-0000-000000000001 accessed file src/Main.java in project "
+                + "00000000-0000-0000-0000-000000000002");
+    }
+
+    private void legacyLog(String message) {
+        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
+                .format(Calendar.getInstance().getTime());
+        String logMessage = String.format("[%s] %s%n", timestamp, message);
+        try (FileWriter writer = new FileWriter(legacyFile, true)) {
+            writer.write(logMessage);
+        } catch (IOException e) { System.out.println(logMessage); }
+    }
+}
@@ -0,0 +1,22 @@
+package fr.epita.assistants.ping.data.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEntryResponse {
+    private String timestamp;
+    private UUID userId;
+    private UUID projectId;
+    private String action;
+    private String path;
+    private Integer status;
+    private Long latencyMicros;
+}
@@ -0,0 +1,56 @@
+package fr.epita.assistants.ping.data.dto;
+
+public class FileUploadResponse {
+    private String relativePath;
+    private Long size;
+    private String sha256;
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public String getRelativePath() {
+        return this.relativePath;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public Long getSize() {
+        return this.size;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public String getSha256() {
+        return this.sha256;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setRelativePath(final String relativePath) {
+        this.relativePath = relativePath;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setSize(final Long size) {
+        this.size = size;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setSha256(final String sha256) {
+        this.sha256 = sha256;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public FileUploadResponse() {
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public FileUploadResponse(final String relativePath, final Long size, final String sha256) {
+        this.relativePath = relativePath;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+}
@@ -0,0 +1,59 @@
+package fr.epita.assistants.ping.data.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class NewProjectBatchEntry {
+    private String name;
+    private UUID ownerId;
+    private List<UUID> memberIds;
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public String getName() {
+        return this.name;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public UUID getOwnerId() {
+        return this.ownerId;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public List<UUID> getMemberIds() {
+        return this.memberIds;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setOwnerId(final UUID ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setMemberIds(final List<UUID> memberIds) {
+        this.memberIds = memberIds;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public NewProjectBatchEntry() {
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public NewProjectBatchEntry(final String name, final UUID ownerId, final List<UUID> memberIds) {
+        this.name = name;
+        this.ownerId = ownerId;
+        this.memberIds = memberIds;
+    }
+}
@@ -0,0 +1,45 @@
+package fr.epita.assistants.ping.data.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class NewProjectBatchRequest {
+    private List<NewProjectBatchEntry> projects;
+    private Map<String, String> files;
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public List<NewProjectBatchEntry> getProjects() {
+        return this.projects;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public Map<String, String> getFiles() {
+        return this.files;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setProjects(final List<NewProjectBatchEntry> projects) {
+        this.projects = projects;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setFiles(final Map<String, String> files) {
+        this.files = files;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public NewProjectBatchRequest() {
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public NewProjectBatchRequest(final List<NewProjectBatchEntry> projects, final Map<String, String> files) {
+        this.projects = projects;
+        this.files = files;
+    }
+}
@@ -0,0 +1,56 @@
+package fr.epita.assistants.ping.data.dto;
+
+public class NewUploadRequest {
+    private String relativePath;
+    private Long size;
+    private Long chunkSize;
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public String getRelativePath() {
+        return this.relativePath;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public Long getSize() {
+        return this.size;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public Long getChunkSize() {
+        return this.chunkSize;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setRelativePath(final String relativePath) {
+        this.relativePath = relativePath;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setSize(final Long size) {
+        this.size = size;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setChunkSize(final Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public NewUploadRequest() {
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public NewUploadRequest(final String relativePath, final Long size, final Long chunkSize) {
+        this.relativePath = relativePath;
+        this.size = size;
+        this.chunkSize = chunkSize;
+    }
+}
@@ -0,0 +1,17 @@
+package fr.epita.assistants.ping.data.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrashFailureResponse {
+    private String tombstone;
+    private Integer attempts;
+    private String error;
+    private String retryAt;
+}
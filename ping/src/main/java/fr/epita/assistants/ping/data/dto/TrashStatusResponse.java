@@ -0,0 +1,20 @@
+package fr.epita.assistants.ping.data.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrashStatusResponse {
+    private String current;
+    private List<String> pending;
+    private List<TrashFailureResponse> failed;
+    private Long deletedFiles;
+    private Long freedBytes;
+}
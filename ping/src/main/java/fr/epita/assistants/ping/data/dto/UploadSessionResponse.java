@@ -0,0 +1,101 @@
+package fr.epita.assistants.ping.data.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class UploadSessionResponse {
+    private UUID id;
+    private String relativePath;
+    private Long size;
+    private Long chunkSize;
+    private Integer chunkCount;
+    private List<Integer> received;
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public UUID getId() {
+        return this.id;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public String getRelativePath() {
+        return this.relativePath;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public Long getSize() {
+        return this.size;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public Long getChunkSize() {
+        return this.chunkSize;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public Integer getChunkCount() {
+        return this.chunkCount;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public List<Integer> getReceived() {
+        return this.received;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setId(final UUID id) {
+        this.id = id;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setRelativePath(final String relativePath) {
+        this.relativePath = relativePath;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setSize(final Long size) {
+        this.size = size;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setChunkSize(final Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setChunkCount(final Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setReceived(final List<Integer> received) {
+        this.received = received;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public UploadSessionResponse() {
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public UploadSessionResponse(final UUID id, final String relativePath, final Long size, final Long chunkSize, final Integer chunkCount, final List<Integer> received) {
+        this.id = id;
+        this.relativePath = relativePath;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+        this.received = received;
+    }
+}
@@ -0,0 +1,31 @@
+package fr.epita.assistants.ping.data.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class UserProjectBatchRequest {
+    private List<UUID> userIds;
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public List<UUID> getUserIds() {
+        return this.userIds;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setUserIds(final List<UUID> userIds) {
+        this.userIds = userIds;
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public UserProjectBatchRequest() {
+    }
+
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public UserProjectBatchRequest(final List<UUID> userIds) {
+        this.userIds = userIds;
+    }
+}
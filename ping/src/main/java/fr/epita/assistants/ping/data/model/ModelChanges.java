@@ -0,0 +1,54 @@
+package fr.epita.assistants.ping.data.model;
+
+import io.quarkus.arc.Arc;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts writes to projects and users, so a listing can be revalidated against a number instead of
+ * re-reading what it lists. Every write goes through the entities (see {@link ProjectModel}), so the
+ * lifecycle callbacks see them all.
+ *
+ * The counter moves when the write is flushed and again when its transaction ends: a listing read in
+ * between, from data not yet committed, gets a tag that the commit makes stale.
+ */
+public class ModelChanges {
+    private static final AtomicLong GENERATION = new AtomicLong();
+    private static final Object REGISTERED = new Object();
+
+    /**
+     * @return changes so far in this process
+     */
+    public static long generation() {
+        return GENERATION.get();
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void changed(Object entity) {
+        GENERATION.incrementAndGet();
+        TransactionSynchronizationRegistry transactions =
+                Arc.container().instance(TransactionSynchronizationRegistry.class).get();
+        if (transactions.getTransactionStatus() == Status.STATUS_ACTIVE
+                && transactions.getResource(REGISTERED) == null) {
+            transactions.putResource(REGISTERED, Boolean.TRUE);
+            transactions.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    GENERATION.incrementAndGet();
+                }
+            });
+        }
+    }
+}
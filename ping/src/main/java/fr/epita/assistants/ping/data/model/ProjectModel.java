@@ -1,23 +1,54 @@
 package fr.epita.assistants.ping.data.model;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.jpa.HibernateHints;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
+/**
+ * Held in the second-level cache, as is {@link #members}. Hibernate keeps both up to date on entity
+ * writes: adding or removing a member replaces the cached collection of that project only (and
+ * {@link #touchMembers} updates the cached project). Bulk JPQL updates would evict the whole region,
+ * so projects are always changed through the entity.
+ */
 @Entity
-@Table(name = "projects")
+@Cacheable
+@EntityListeners(ModelChanges.class)
+@Table(name = "projects", indexes = @Index(name = "projects_owner_idx", columnList = "owner_id"))
 @Getter
 @Setter
 public class ProjectModel extends PanacheEntityBase {
+    /**
+     * Assigned by {@link #create}, so the path can be derived from it before the single insert.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    // null until inserted: with an assigned id, that is how Hibernate tells a new project without a select
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
+    /**
+     * Bumped by {@link #touchMembers} on every membership change. Membership is excluded from
+     * {@link #version} so adding a member does not conflict with a concurrent rename.
+     */
+    @Column(name = "members_version", nullable = false)
+    @ColumnDefault("0")
+    @OptimisticLock(excluded = true)
+    private long membersVersion;
+
     @Column(nullable = false)
     private String name;
 
@@ -29,19 +60,44 @@ public class ProjectModel extends PanacheEntityBase {
     private UserModel owner;
 
     @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OptimisticLock(excluded = true)
     @JoinTable(
         name = "project_members",
         joinColumns = @JoinColumn(name = "project_id"),
-        inverseJoinColumns = @JoinColumn(name = "user_id")
+        inverseJoinColumns = @JoinColumn(name = "user_id"),
+        uniqueConstraints = @UniqueConstraint(name = "project_members_project_user_uk",
+                columnNames = {"project_id", "user_id"})
     )
-    private List<UserModel> members = new ArrayList<>(); //pour la moulinette
+    private Set<UserModel> members = new HashSet<>(); //pour la moulinette
     
-    @PrePersist
-    public void prePersist() {
-        if (this.path == null && this.id != null) {
-            this.path = "/tmp/ping/projects/" + this.id;
-        } else if (this.path == null) {
-            this.path = "/tmp/ping/projects/temp-" + UUID.randomUUID();
-        }
+    /**
+     * Bumps the membership version, call it before changing {@link #members}. The row is re-read under
+     * a write lock so two concurrent membership changes never end up with the same version.
+     */
+    public void touchMembers() {
+        getEntityManager().refresh(this, LockModeType.PESSIMISTIC_WRITE);
+        membersVersion++;
+    }
+
+    /**
+     * Projects owned by {@code owner}, through the query cache (emptied by any write to projects).
+     */
+    public static PanacheQuery<ProjectModel> ownedBy(UserModel owner) {
+        return find("owner", owner).withHint(HibernateHints.HINT_CACHEABLE, true);
+    }
+
+    /**
+     * A new project with its id and path decided up front, stored under {@code root} (PROJECT_DEFAULT_PATH).
+     * The owner is also the first member.
+     */
+    public static ProjectModel create(String name, UserModel owner, String root) {
+        ProjectModel project = new ProjectModel();
+        project.setId(UUID.randomUUID());
+        project.setName(name);
+        project.setPath(root + project.getId());
+        project.setOwner(owner);
+        project.getMembers().add(owner);
+        return project;
     }
 }
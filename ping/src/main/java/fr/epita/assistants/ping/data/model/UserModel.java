@@ -3,16 +3,25 @@ package fr.epita.assistants.ping.data.model;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
+// Second-level cached; memberProjects and ownedProjects are not, as the owning side (ProjectModel)
+// changes them without touching the user.
 @Entity
+@Cacheable
+@EntityListeners(ModelChanges.class)
 @Table(name = "users")
 public class UserModel extends PanacheEntityBase {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long version;
     @Column(unique = true, nullable = false)
     private String login;
     @Column(nullable = false)
@@ -33,6 +42,12 @@ public class UserModel extends PanacheEntityBase {
         return this.id;
     }
 
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public long getVersion() {
+        return this.version;
+    }
+
     @java.lang.SuppressWarnings("all")
     @lombok.Generated
     public String getLogin() {
@@ -81,6 +96,12 @@ public class UserModel extends PanacheEntityBase {
         this.id = id;
     }
 
+    @java.lang.SuppressWarnings("all")
+    @lombok.Generated
+    public void setVersion(final long version) {
+        this.version = version;
+    }
+
     @java.lang.SuppressWarnings("all")
     @lombok.Generated
     public void setLogin(final String login) {
@@ -122,4 +143,21 @@ public class UserModel extends PanacheEntityBase {
     public void setOwnedProjects(final Set<ProjectModel> ownedProjects) {
         this.ownedProjects = ownedProjects;
     }
+
+    /**
+     * Identity is the id, so a user loaded twice (or through a proxy) is found in a project's member
+     * set. A user is only added to sets once persisted, its id never changes afterwards.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof UserModel other && getId() != null && getId().equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return getId() != null ? getId().hashCode() : System.identityHashCode(this);
+    }
 }
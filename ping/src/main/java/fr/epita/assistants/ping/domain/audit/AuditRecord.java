@@ -0,0 +1,137 @@
+package fr.epita.assistants.ping.domain.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * One resource action as stored in the audit segments.
+ *
+ * Binary layout (big endian), prefixed by its length as an int:
+ * timestamp(8) userId(16) projectId(16) status(2) latencyMicros(8) action(2+n) path(2+n)
+ * A null uuid is stored as two zero longs.
+ */
+public record AuditRecord(long timestamp, UUID userId, UUID projectId, String action, String path,
+                          int status, long latencyMicros) {
+
+    private static final int FIXED_SIZE = 8 + 16 + 16 + 2 + 8 + 2 + 2;
+    private static final int MAX_STRING = 0xFFFF;
+
+    public int encodedSize() {
+        return 4 + FIXED_SIZE + utf8(action).length + utf8(path).length;
+    }
+
+    public void encode(ByteBuffer out) {
+        byte[] actionBytes = utf8(action);
+        byte[] pathBytes = utf8(path);
+        out.putInt(FIXED_SIZE + actionBytes.length + pathBytes.length);
+        out.putLong(timestamp);
+        putUuid(out, userId);
+        putUuid(out, projectId);
+        out.putShort((short) status);
+        out.putLong(latencyMicros);
+        out.putShort((short) actionBytes.length);
+        out.put(actionBytes);
+        out.putShort((short) pathBytes.length);
+        out.put(pathBytes);
+    }
+
+    /**
+     * Reads the record at the buffer position, or returns null if the buffer only holds a truncated
+     * or torn tail.
+     */
+    public static AuditRecord decode(ByteBuffer in) {
+        if (!hasNext(in)) {
+            return null;
+        }
+        in.position(in.position() + 4);
+        long timestamp = in.getLong();
+        UUID userId = getUuid(in);
+        UUID projectId = getUuid(in);
+        int status = in.getShort() & 0xFFFF;
+        long latency = in.getLong();
+        String action = getString(in);
+        String path = getString(in);
+        return new AuditRecord(timestamp, userId, projectId, action, path, status, latency);
+    }
+
+    /**
+     * Reads only the timestamp and project of the record at the buffer position and skips it,
+     * used to rebuild a segment index without materialising the strings. Only call it where
+     * {@link #hasNext} holds.
+     */
+    public static long skip(ByteBuffer in, UUID[] projectOut) {
+        int length = in.getInt();
+        int start = in.position();
+        long timestamp = in.getLong();
+        getUuid(in);
+        projectOut[0] = getUuid(in);
+        in.position(start + length);
+        return timestamp;
+    }
+
+    /**
+     * Whether a whole, well-formed record starts at the buffer position: its length covers the fixed
+     * fields, fits in the buffer, and agrees with its string lengths. A zero-filled or torn tail left
+     * by a crash fails this, and is where the segment ends.
+     */
+    public static boolean hasNext(ByteBuffer in) {
+        if (in.remaining() < 4) {
+            return false;
+        }
+        int start = in.position();
+        int length = in.getInt(start);
+        if (length < FIXED_SIZE || in.remaining() - 4L < length) {
+            return false;
+        }
+        int actionAt = start + 4 + FIXED_SIZE - 4;
+        int actionLength = in.getShort(actionAt) & 0xFFFF;
+        if (actionLength > length - FIXED_SIZE) {
+            return false;
+        }
+        int pathLength = in.getShort(actionAt + 2 + actionLength) & 0xFFFF;
+        return FIXED_SIZE + actionLength + pathLength == length;
+    }
+
+    /**
+     * UTF-8 bytes of {@code value}, cut to {@link #MAX_STRING} on a code point boundary.
+     */
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_STRING) {
+            return bytes;
+        }
+        int cut = MAX_STRING;
+        // back off continuation bytes (10xxxxxx) to the start of the cut sequence
+        while (cut > 0 && (bytes[cut] & 0xC0) == 0x80) {
+            cut--;
+        }
+        byte[] truncated = new byte[cut];
+        System.arraycopy(bytes, 0, truncated, 0, cut);
+        return truncated;
+    }
+
+    private static void putUuid(ByteBuffer out, UUID uuid) {
+        out.putLong(uuid == null ? 0 : uuid.getMostSignificantBits());
+        out.putLong(uuid == null ? 0 : uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer in) {
+        long msb = in.getLong();
+        long lsb = in.getLong();
+        return msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
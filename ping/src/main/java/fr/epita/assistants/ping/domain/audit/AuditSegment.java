@@ -0,0 +1,193 @@
+package fr.epita.assistants.ping.domain.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Append-only file of encoded {@link AuditRecord}s plus its index: the time range it covers and
+ * the set of projects it mentions. Queries use the index to skip whole segments.
+ *
+ * The index is kept in memory and written next to the segment ({@code .idx}) when it is sealed;
+ * a segment without index (crash) gets its index rebuilt by a single scan on load.
+ */
+public final class AuditSegment {
+    private static final String SEGMENT_EXT = ".seg";
+    private static final String INDEX_EXT = ".idx";
+
+    private final long sequence;
+    private final Path file;
+    private final Path indexFile;
+    private final Set<UUID> projects = ConcurrentHashMap.newKeySet();
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+    private volatile long size;
+    private FileChannel channel;
+
+    private AuditSegment(Path dir, long sequence) {
+        this.sequence = sequence;
+        this.file = dir.resolve(String.format("audit-%012d%s", sequence, SEGMENT_EXT));
+        this.indexFile = dir.resolve(String.format("audit-%012d%s", sequence, INDEX_EXT));
+    }
+
+    public static AuditSegment create(Path dir, long sequence) throws IOException {
+        AuditSegment segment = new AuditSegment(dir, sequence);
+        segment.channel = FileChannel.open(segment.file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return segment;
+    }
+
+    public static AuditSegment load(Path segmentFile) throws IOException {
+        String name = segmentFile.getFileName().toString();
+        long sequence = Long.parseLong(name.substring("audit-".length(), name.length() - SEGMENT_EXT.length()));
+        AuditSegment segment = new AuditSegment(segmentFile.getParent(), sequence);
+        segment.size = Files.size(segmentFile);
+        if (Files.exists(segment.indexFile)) {
+            segment.readIndex();
+        } else {
+            segment.rebuildIndex();
+            segment.writeIndex();
+        }
+        return segment;
+    }
+
+    public static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith("audit-") && name.endsWith(SEGMENT_EXT);
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Writer thread only. {@code batch} holds the encoded form of {@code records}.
+     */
+    public void append(ByteBuffer batch, Iterable<AuditRecord> records) throws IOException {
+        long written = 0;
+        while (batch.hasRemaining()) {
+            written += channel.write(batch);
+        }
+        for (AuditRecord record : records) {
+            index(record.timestamp(), record.projectId());
+        }
+        size += written;
+    }
+
+    public void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    public void seal() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        channel.force(false);
+        channel.close();
+        channel = null;
+        writeIndex();
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(file);
+    }
+
+    public boolean mayContain(UUID projectId, long from, long to) {
+        if (size == 0 || maxTimestamp < from || minTimestamp > to) {
+            return false;
+        }
+        return projectId == null || projects.contains(projectId);
+    }
+
+    public void scan(UUID projectId, long from, long to, Consumer<AuditRecord> sink) throws IOException {
+        long limit = size;
+        if (limit == 0) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(limit, in.size()));
+            AuditRecord record;
+            while ((record = AuditRecord.decode(buffer)) != null) {
+                if (record.timestamp() >= from && record.timestamp() <= to
+                        && (projectId == null || projectId.equals(record.projectId()))) {
+                    sink.accept(record);
+                }
+            }
+        }
+    }
+
+    private void index(long timestamp, UUID projectId) {
+        if (timestamp < minTimestamp) {
+            minTimestamp = timestamp;
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+        }
+        if (projectId != null) {
+            projects.add(projectId);
+        }
+    }
+
+    private void rebuildIndex() throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            UUID[] project = new UUID[1];
+            while (AuditRecord.hasNext(buffer)) {
+                index(AuditRecord.skip(buffer, project), project[0]);
+            }
+            // the first torn or zero-filled record left by a crash ends the segment: cut it off so
+            // nothing after it is read back as records
+            if (buffer.position() < size) {
+                size = buffer.position();
+                in.truncate(size);
+                in.force(false);
+            }
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(8 + 8 + 4 + projects.size() * 16 + 64);
+        out.putLong(minTimestamp).putLong(maxTimestamp);
+        UUID[] ids = projects.toArray(new UUID[0]);
+        out.putInt(ids.length);
+        for (UUID id : ids) {
+            out.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        }
+        out.flip();
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readIndex() throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        minTimestamp = in.getLong();
+        maxTimestamp = in.getLong();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            projects.add(new UUID(in.getLong(), in.getLong()));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.data.dto.AuditEntryResponse;
+import fr.epita.assistants.ping.data.dto.TrashFailureResponse;
+import fr.epita.assistants.ping.data.dto.TrashStatusResponse;
+import fr.epita.assistants.ping.domain.audit.AuditRecord;
+import fr.epita.assistants.ping.service.AuditLog;
+import fr.epita.assistants.ping.service.ListQuery;
+import fr.epita.assistants.ping.service.ProjectTrash;
+import fr.epita.assistants.ping.utils.ErrorInfo;
+import fr.epita.assistants.ping.utils.Logger;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Path("/api/admin")
+@ApplicationScoped
+@RolesAllowed("admin")
+@Produces(MediaType.APPLICATION_JSON)
+public class AdminResource {
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    AuditLog auditLog;
+
+    @Inject
+    ProjectTrash trash;
+
+    @GET
+    @Path("/audit")
+    public Response queryAudit(@QueryParam("projectId") UUID projectId,
+                               @QueryParam("from") String from,
+                               @QueryParam("to") String to,
+                               @QueryParam("limit") @DefaultValue("1000") int limit,
+                               @Context SecurityContext ctx) {
+        long fromMillis;
+        long toMillis;
+        try {
+            fromMillis = from == null ? 0 : Instant.parse(from).toEpochMilli();
+            toMillis = to == null ? Long.MAX_VALUE : Instant.parse(to).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            logger.error("Audit query failed: invalid time range " + from + " - " + to);
+            return Response.status(400).entity(new ErrorInfo("The time range is invalid")).build();
+        }
+        if (limit <= 0 || limit > ListQuery.MAX_LIMIT || fromMillis > toMillis) {
+            logger.error("Audit query failed: invalid parameters");
+            return Response.status(400).entity(new ErrorInfo("The time range or limit is invalid")).build();
+        }
+
+        try {
+            List<AuditRecord> records = auditLog.query(projectId, fromMillis, toMillis, limit);
+            logger.info("Admin " + ctx.getUserPrincipal().getName() + " queried audit log (project=" + projectId + ")");
+            return Response.ok(records.stream()
+                    .map(this::toAuditEntry)
+                    .collect(Collectors.toList())).build();
+        } catch (IOException e) {
+            logger.error("Audit query failed: " + e.getMessage());
+            return Response.status(500).entity(new ErrorInfo("Failed to read the audit log")).build();
+        }
+    }
+
+    /**
+     * Progress of the background deletion of deleted projects' directories.
+     */
+    @GET
+    @Path("/trash")
+    public Response trashStatus() {
+        ProjectTrash.Status status = trash.status();
+        List<TrashFailureResponse> failed = status.failed().stream()
+                .map(failure -> new TrashFailureResponse(failure.tombstone(), failure.attempts(), failure.error(),
+                        failure.retryAt().toString()))
+                .toList();
+        return Response.ok(new TrashStatusResponse(status.current(), status.pending(), failed,
+                status.deletedFiles(), status.freedBytes())).build();
+    }
+
+    private AuditEntryResponse toAuditEntry(AuditRecord record) {
+        return new AuditEntryResponse(
+                Instant.ofEpochMilli(record.timestamp()).toString(),
+                record.userId(),
+                record.projectId(),
+                record.action(),
+                record.path(),
+                record.status(),
+                record.latencyMicros()
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code Range: bytes=...} header of a file read (RFC 9110 section 14). A header that is malformed,
+ * not in bytes or asks for more than {@link #MAX_RANGES} pieces is ignored and the whole file is
+ * sent, as the RFC allows. Overlapping and adjacent ranges are merged.
+ */
+final class ByteRanges {
+    static final int MAX_RANGES = 16;
+    private static final String UNIT = "bytes=";
+
+    private ByteRanges() {
+    }
+
+    /**
+     * @param first offset of the first byte
+     * @param last  offset of the last byte, inclusive
+     */
+    record Range(long first, long last) {
+        long length() {
+            return last - first + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + first + "-" + last + "/" + size;
+        }
+    }
+
+    /**
+     * @return null to send the whole file, an empty list when no range is satisfiable (416),
+     *         the ranges to send otherwise
+     */
+    static List<Range> parse(String header, long size) {
+        if (header == null || !header.regionMatches(true, 0, UNIT, 0, UNIT.length())) {
+            return null;
+        }
+        String[] specs = header.substring(UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long first;
+            long last;
+            try {
+                if (dash == 0) {
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    first = Math.max(0, size - suffix);
+                    last = size - 1;
+                } else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    String end = spec.substring(dash + 1);
+                    last = end.isEmpty() ? size - 1 : Long.parseLong(end);
+                    if (first < 0 || last < first) {
+                        return null;
+                    }
+                    last = Math.min(last, size - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (first < size && first <= last) {
+                ranges.add(new Range(first, last));
+            }
+        }
+        return merge(ranges);
+    }
+
+    private static List<Range> merge(List<Range> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(Range::first));
+        List<Range> merged = new ArrayList<>(ranges.size());
+        Range current = ranges.get(0);
+        for (Range next : ranges.subList(1, ranges.size())) {
+            if (next.first() <= current.last() + 1) {
+                current = new Range(current.first(), Math.max(current.last(), next.last()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
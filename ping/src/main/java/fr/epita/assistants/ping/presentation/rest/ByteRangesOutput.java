@@ -0,0 +1,66 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+/**
+ * {@code multipart/byteranges} body of a multi-range read, each part copied with a
+ * {@link FileChannelOutput}. The part headers are fixed up front, so the Content-Length is known.
+ */
+final class ByteRangesOutput implements StreamingOutput {
+    private static final String PART_TYPE = "application/octet-stream";
+
+    private final Path file;
+    private final long size;
+    private final List<ByteRanges.Range> ranges;
+    private final LongConsumer written;
+    private final String boundary = UUID.randomUUID().toString().replace("-", "");
+
+    ByteRangesOutput(Path file, long size, List<ByteRanges.Range> ranges, LongConsumer written) {
+        this.file = file;
+        this.size = size;
+        this.ranges = ranges;
+        this.written = written;
+    }
+
+    String contentType() {
+        return "multipart/byteranges; boundary=" + boundary;
+    }
+
+    long contentLength() {
+        long length = closing().length;
+        for (ByteRanges.Range range : ranges) {
+            length += header(range).length + range.length() + 2;
+        }
+        return length;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        for (ByteRanges.Range range : ranges) {
+            output.write(header(range));
+            new FileChannelOutput(file, range.first(), range.length(), written).write(output);
+            output.write('\r');
+            output.write('\n');
+        }
+        output.write(closing());
+        output.flush();
+    }
+
+    private byte[] header(ByteRanges.Range range) {
+        return ("--" + boundary + "\r\n"
+                + "Content-Type: " + PART_TYPE + "\r\n"
+                + "Content-Range: " + range.contentRange(size) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] closing() {
+        return ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
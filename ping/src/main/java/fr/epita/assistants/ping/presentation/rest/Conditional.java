@@ -0,0 +1,125 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conditional GET: strong ETags on the polled resources, 304 when the client's If-None-Match still
+ * matches. Responses are marked private and no-cache so the browser keeps them but always revalidates.
+ *
+ * Files and folders are tagged from their attributes (size, mtime, file key) rather than their content,
+ * so revalidating costs one stat. Their handlers run on IO workers where the JAX-RS {@link Request}
+ * is not available, so those preconditions are evaluated from the raw headers.
+ */
+final class Conditional {
+    private static final CacheControl REVALIDATE = CacheControl.valueOf("private, no-cache");
+
+    private Conditional() {
+    }
+
+    /**
+     * @return a 304 response when {@code tag} matches the request's If-None-Match, null otherwise
+     */
+    static Response notModified(Request request, String tag) {
+        EntityTag etag = new EntityTag(tag);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        return notModified == null ? null : notModified.tag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    static Response.ResponseBuilder tagged(Response.ResponseBuilder response, String tag) {
+        return response.tag(new EntityTag(tag)).cacheControl(REVALIDATE);
+    }
+
+    /**
+     * Strong validator of a file ({@code f}) or directory ({@code d}). A write that keeps the size
+     * within one mtime tick on the same inode is not seen, uploads replace the file (new inode).
+     */
+    static String fileTag(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return (attributes.isDirectory() ? "d" : "f")
+                + Long.toHexString(attributes.size())
+                + "-" + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS))
+                + "-" + Integer.toHexString(key != null ? key.hashCode() : 0);
+    }
+
+    /**
+     * Validator of an uploaded file from its content digest, so identical content keeps its tag.
+     */
+    static String digestTag(String sha256) {
+        return "sha256-" + sha256;
+    }
+
+    static Instant lastModified(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().toInstant().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * @return a 304 response when If-None-Match (weak comparison) or, without it, If-Modified-Since
+     *         still hold for the resource, null otherwise
+     */
+    static Response notModified(String ifNoneMatch, String ifModifiedSince, String tag, Instant lastModified) {
+        boolean unchanged;
+        if (ifNoneMatch != null) {
+            unchanged = false;
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                unchanged |= candidate.equals("*") || candidate.equals(quoted(tag));
+            }
+        } else {
+            Instant since = httpDate(ifModifiedSince);
+            unchanged = since != null && !lastModified.isAfter(since);
+        }
+        return unchanged ? tagged(Response.notModified(), tag, lastModified).build() : null;
+    }
+
+    static Response.ResponseBuilder tagged(Response.ResponseBuilder response, String tag, Instant lastModified) {
+        return tagged(response, tag).lastModified(Date.from(lastModified));
+    }
+
+    /**
+     * If-Range holds the strong ETag or the Last-Modified date of the copy the client already has.
+     * A date only counts as a strong validator when it is at least a second older than the response
+     * Date (RFC 9110 13.1.5): a file modified within the current second may change again under the
+     * same Last-Modified, so the client gets the whole file.
+     */
+    static boolean ifRange(String ifRange, String tag, Instant lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"")) {
+            return value.equals(quoted(tag));
+        }
+        Instant date = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        return lastModified.equals(httpDate(value)) && !lastModified.plusSeconds(1).isAfter(date);
+    }
+
+    private static String quoted(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    private static Instant httpDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+/**
+ * File body read with positional {@link FileChannel} reads from {@code offset}, {@code length}
+ * bytes, through one fixed buffer, so the heap stays flat whatever the file size.
+ *
+ * The target is the RESTEasy output stream, not a socket channel, so {@link FileChannel#transferTo}
+ * could not hand the copy to sendfile anyway; a plain read/write loop always makes progress.
+ * The length is taken when the response is built (it is the Content-Length): a file that shrinks
+ * in between fails the write, one that grows is cut.
+ */
+final class FileChannelOutput implements StreamingOutput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long offset;
+    private final long length;
+    private final LongConsumer written;
+
+    FileChannelOutput(Path file, long offset, long length, LongConsumer written) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.written = written;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(length, 1)));
+        long position = offset;
+        long remaining = length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("File " + file + " shrank while it was being sent");
+                }
+                output.write(buffer.array(), 0, read);
+                position += read;
+                remaining -= read;
+            }
+        } finally {
+            written.accept(position - offset);
+        }
+        output.flush();
+    }
+}
@@ -1,195 +1,270 @@
 package fr.epita.assistants.ping.presentation.rest;
 
+import fr.epita.assistants.ping.data.dto.FileUploadResponse;
 import fr.epita.assistants.ping.data.dto.MoveRequest;
 import fr.epita.assistants.ping.data.dto.PathRequest;
-import fr.epita.assistants.ping.data.model.ProjectModel;
-import fr.epita.assistants.ping.data.model.UserModel;
+import fr.epita.assistants.ping.service.AtomicFiles;
+import fr.epita.assistants.ping.service.IoExecutor;
+import fr.epita.assistants.ping.service.MetricsRegistry;
+import fr.epita.assistants.ping.service.ProjectAccess;
+import fr.epita.assistants.ping.service.ProjectAccessService;
 import fr.epita.assistants.ping.utils.ErrorInfo;
+import fr.epita.assistants.ping.utils.Logger;
+import fr.epita.assistants.ping.utils.RequestTrace;
 import io.quarkus.security.Authenticated;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.transaction.Transactional;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
-import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;              // JDK Path (for file-system use)
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import static fr.epita.assistants.ping.service.IoExecutor.done;
 
 
 @jakarta.ws.rs.Path("/api/projects/{projectId}/files")
 @ApplicationScoped
 @Authenticated
 public class FileResource {
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    ProjectAccessService accessService;
 
-    @ConfigProperty(name = "LOG_FILE")
-    String logFile;
+    @Inject
+    IoExecutor io;
 
-    @ConfigProperty(name = "ERROR_LOG_FILE")
-    String errorLogFile;
+    @Inject
+    AtomicFiles atomicFiles;
+
+    @Inject
+    MetricsRegistry metrics;
 
     @GET
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
-    public Response getFile(@PathParam("projectId") UUID projectId,
-                            @QueryParam("path") @DefaultValue("") String relativePath,
-                            @Context SecurityContext ctx) {
+    public CompletionStage<Response> getFile(@PathParam("projectId") UUID projectId,
+                                             @QueryParam("path") @DefaultValue("") String relativePath,
+                                             @HeaderParam("Range") String range,
+                                             @HeaderParam("If-Range") String ifRange,
+                                             @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                                             @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince,
+                                             @Context SecurityContext ctx) {
 
         if (relativePath == null) {
-            logError("Get file failed: null path");
-            return Response.status(400).entity("The relative path is invalid").build();
+            logger.error("Get file failed: null path");
+            return done(Response.status(400).entity("The relative path is invalid").build());
         }
 
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user   = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Get file failed: project not found - " + projectId);
-            return Response.status(404).entity("The project could not be found").build();
+        if (access == null) {
+            logger.error("Get file failed: project not found - " + projectId);
+            return done(Response.status(404).entity("The project could not be found").build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Get file failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity("The user is not allowed to access the project").build();
+        if (!access.allowed()) {
+            logger.error("Get file failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity("The user is not allowed to access the project").build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path filePath    = projectPath.resolve(relativePath).normalize();
-
-            if (!filePath.startsWith(projectPath)) {
-                logError("Get file failed: path traversal attempt - " + relativePath);
-                return Response.status(403).entity("Path traversal detected").build();
-            }
-            if (!Files.exists(filePath)) {
-                logError("Get file failed: file not found - " + relativePath);
-                return Response.status(404).entity("File not found").build();
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path filePath    = projectPath.resolve(relativePath).normalize();
+
+                if (!filePath.startsWith(projectPath)) {
+                    logger.error("Get file failed: path traversal attempt - " + relativePath);
+                    return Response.status(403).entity("Path traversal detected").build();
+                }
+                if (!Files.exists(filePath)) {
+                    logger.error("Get file failed: file not found - " + relativePath);
+                    return Response.status(404).entity("File not found").build();
+                }
+                BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    logger.error("Get file failed: " + relativePath + " is a directory");
+                    return Response.status(500).entity("Failed to read file").build();
+                }
+
+                String digest = atomicFiles.digest(filePath, attributes);
+                String tag = digest != null ? Conditional.digestTag(digest) : Conditional.fileTag(attributes);
+                Instant modified = Conditional.lastModified(attributes);
+                Response notModified = Conditional.notModified(ifNoneMatch, ifModifiedSince, tag, modified);
+                if (notModified != null) {
+                    return notModified;
+                }
+
+                logger.info("User " + userId + " accessed file " + relativePath + " in project " + projectId);
+                return fileResponse(filePath, attributes.size(), tag, modified,
+                        Conditional.ifRange(ifRange, tag, modified) ? range : null);
+
+            } catch (IOException e) {
+                logger.error("Get file failed: " + e.getMessage());
+                return Response.status(500).entity("Failed to read file").build();
             }
+        });
+    }
 
-            byte[] content = Files.readAllBytes(filePath);
-            log("User " + userId + " accessed file " + relativePath + " in project " + projectId);
-            return Response.ok(content).build();
-
-        } catch (IOException e) {
-            logError("Get file failed: " + e.getMessage());
-            return Response.status(500).entity("Failed to read file").build();
+    /**
+     * Whole file, or the requested byte ranges (206, multipart/byteranges for several).
+     * Ranges past the end of the file answer 416.
+     */
+    private Response fileResponse(Path filePath, long size, String tag, Instant modified, String range) {
+        List<ByteRanges.Range> ranges = ByteRanges.parse(range, size);
+
+        Response.ResponseBuilder response;
+        if (ranges == null) {
+            response = Response.ok(new FileChannelOutput(filePath, 0, size, metrics::addBytesRead))
+                    .header(HttpHeaders.CONTENT_LENGTH, size);
+        } else if (ranges.isEmpty()) {
+            return Response.status(416)
+                    .entity("The requested range is not satisfiable")
+                    .header(CONTENT_RANGE, "bytes */" + size)
+                    .header(ACCEPT_RANGES, "bytes")
+                    .build();
+        } else if (ranges.size() == 1) {
+            ByteRanges.Range only = ranges.get(0);
+            response = Response.status(206)
+                    .entity(new FileChannelOutput(filePath, only.first(), only.length(), metrics::addBytesRead))
+                    .header(CONTENT_RANGE, only.contentRange(size))
+                    .header(HttpHeaders.CONTENT_LENGTH, only.length());
+        } else {
+            ByteRangesOutput parts = new ByteRangesOutput(filePath, size, ranges, metrics::addBytesRead);
+            response = Response.status(206)
+                    .entity(parts)
+                    .type(parts.contentType())
+                    .header(HttpHeaders.CONTENT_LENGTH, parts.contentLength());
         }
+        return Conditional.tagged(response, tag, modified)
+                .header(ACCEPT_RANGES, "bytes")
+                .build();
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional
-    public Response createFile(@PathParam("projectId") UUID projectId,
-                               PathRequest request,
-                               @Context SecurityContext ctx) {
+    public CompletionStage<Response> createFile(@PathParam("projectId") UUID projectId,
+                                                PathRequest request,
+                                                @Context SecurityContext ctx) {
 
         if (request.getRelativePath() == null || request.getRelativePath().isBlank()) {
-            logError("Create file failed: invalid path");
-            return Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build();
+            logger.error("Create file failed: invalid path");
+            return done(Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build());
         }
 
+        RequestTrace.current().setPath(request.getRelativePath());
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user   = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Create file failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("Create file failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Create file failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("Create file failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path filePath    = projectPath.resolve(request.getRelativePath()).normalize();
-
-            if (!filePath.startsWith(projectPath)) {
-                logError("Create file failed: path traversal attempt - " + request.getRelativePath());
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path filePath    = projectPath.resolve(request.getRelativePath()).normalize();
+
+                if (!filePath.startsWith(projectPath)) {
+                    logger.error("Create file failed: path traversal attempt - " + request.getRelativePath());
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (Files.exists(filePath)) {
+                    logger.error("Create file failed: file already exists - " + request.getRelativePath());
+                    return Response.status(409).entity(new ErrorInfo("The file already exists")).build();
+                }
+
+                Files.createDirectories(filePath.getParent());
+                Files.createFile(filePath);
+
+                logger.info("User " + userId + " created file " + request.getRelativePath() + " in project " + projectId);
+                return Response.status(201).build();
+
+            } catch (IOException e) {
+                logger.error("Create file failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to create file")).build();
             }
-            if (Files.exists(filePath)) {
-                logError("Create file failed: file already exists - " + request.getRelativePath());
-                return Response.status(409).entity(new ErrorInfo("The file already exists")).build();
-            }
-
-            Files.createDirectories(filePath.getParent());
-            Files.createFile(filePath);
-
-            log("User " + userId + " created file " + request.getRelativePath() + " in project " + projectId);
-            return Response.status(201).build();
-
-        } catch (IOException e) {
-            logError("Create file failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to create file")).build();
-        }
+        });
     }
 
     @DELETE
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional
-    public Response deleteFile(@PathParam("projectId") UUID projectId,
-                               PathRequest request,
-                               @Context SecurityContext ctx) {
+    public CompletionStage<Response> deleteFile(@PathParam("projectId") UUID projectId,
+                                                PathRequest request,
+                                                @Context SecurityContext ctx) {
 
         if (request.getRelativePath() == null || request.getRelativePath().isBlank()) {
-            logError("Delete file failed: invalid path");
-            return Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build();
+            logger.error("Delete file failed: invalid path");
+            return done(Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build());
         }
 
+        RequestTrace.current().setPath(request.getRelativePath());
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user   = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Delete file failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("Delete file failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Delete file failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("Delete file failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path filePath    = projectPath.resolve(request.getRelativePath()).normalize();
-
-            if (!filePath.startsWith(projectPath)) {
-                logError("Delete file failed: path traversal attempt - " + request.getRelativePath());
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
-            }
-            if (!Files.exists(filePath)) {
-                logError("Delete file failed: file not found - " + request.getRelativePath());
-                return Response.status(404).entity(new ErrorInfo("The file could not be found")).build();
-            }
-
-            if (filePath.equals(projectPath)) {
-                Files.list(filePath).forEach(p -> {
-                    try { deleteRecursively(p); } catch (IOException e) { throw new RuntimeException(e); }
-                });
-            } else {
-                deleteRecursively(filePath);
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path filePath    = projectPath.resolve(request.getRelativePath()).normalize();
+
+                if (!filePath.startsWith(projectPath)) {
+                    logger.error("Delete file failed: path traversal attempt - " + request.getRelativePath());
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (!Files.exists(filePath)) {
+                    logger.error("Delete file failed: file not found - " + request.getRelativePath());
+                    return Response.status(404).entity(new ErrorInfo("The file could not be found")).build();
+                }
+
+                if (filePath.equals(projectPath)) {
+                    Files.list(filePath).forEach(p -> {
+                        try { deleteRecursively(p); } catch (IOException e) { throw new RuntimeException(e); }
+                    });
+                } else {
+                    deleteRecursively(filePath);
+                }
+
+                logger.info("User " + userId + " deleted file " + request.getRelativePath() + " in project " + projectId);
+                return Response.noContent().build();
+
+            } catch (IOException e) {
+                logger.error("Delete file failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to delete file")).build();
             }
-
-            log("User " + userId + " deleted file " + request.getRelativePath() + " in project " + projectId);
-            return Response.noContent().build();
-
-        } catch (IOException e) {
-            logError("Delete file failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to delete file")).build();
-        }
+        });
     }
 
 
@@ -197,115 +272,127 @@ public class FileResource {
     @jakarta.ws.rs.Path("/upload")
     @Consumes(MediaType.APPLICATION_OCTET_STREAM)
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional
-    public Response uploadFile(@PathParam("projectId") UUID projectId,
-                               @QueryParam("path") String relativePath,
-                               InputStream content,
-                               @Context SecurityContext ctx) {
+    public CompletionStage<Response> uploadFile(@PathParam("projectId") UUID projectId,
+                                                @QueryParam("path") String relativePath,
+                                                InputStream content,
+                                                @Context SecurityContext ctx) {
 
         if (relativePath == null || relativePath.isBlank()) {
-            logError("Upload file failed: invalid path");
-            return Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build();
+            logger.error("Upload file failed: invalid path");
+            return done(Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build());
         }
 
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user   = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Upload file failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("Upload file failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Upload file failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("Upload file failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path filePath    = projectPath.resolve(relativePath).normalize();
-
-            if (!filePath.startsWith(projectPath)) {
-                logError("Upload file failed: path traversal attempt - " + relativePath);
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
-            }
-
-            Files.createDirectories(filePath.getParent());
-            Files.copy(content, filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            log("User " + userId + " uploaded file " + relativePath + " in project " + projectId);
-            return Response.status(201).build();
+        Path projectPath = Paths.get(access.path());
+        Path filePath    = projectPath.resolve(relativePath).normalize();
 
-        } catch (IOException e) {
-            logError("Upload file failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to upload file")).build();
+        if (!filePath.startsWith(projectPath)) {
+            logger.error("Upload file failed: path traversal attempt - " + relativePath);
+            return done(Response.status(403).entity(new ErrorInfo("Path traversal detected")).build());
         }
+
+        // the body is received into staging without a project slot, only the rename takes one
+        return io.receive(() -> {
+            AtomicFiles.Staged received;
+            try {
+                received = atomicFiles.stage(content);
+            } catch (IOException e) {
+                logger.error("Upload file failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to upload file")).build();
+            }
+            try (AtomicFiles.Staged staged = received) {
+                return io.call(projectId, () -> {
+                    try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                        Files.createDirectories(filePath.getParent());
+                        AtomicFiles.Written written = atomicFiles.commit(staged, filePath);
+                        metrics.addBytesWritten(written.size());
+
+                        logger.info("User " + userId + " uploaded file " + relativePath + " in project " + projectId);
+                        return Response.status(201)
+                                .entity(new FileUploadResponse(relativePath, written.size(), written.sha256()))
+                                .tag(new EntityTag(Conditional.digestTag(written.sha256())))
+                                .build();
+
+                    } catch (IOException e) {
+                        logger.error("Upload file failed: " + e.getMessage());
+                        return Response.status(500).entity(new ErrorInfo("Failed to upload file")).build();
+                    }
+                });
+            }
+        });
     }
 
     @PUT
     @jakarta.ws.rs.Path("/move")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional
-    public Response moveFile(@PathParam("projectId") UUID projectId,
-                             MoveRequest request,
-                             @Context SecurityContext ctx) {
+    public CompletionStage<Response> moveFile(@PathParam("projectId") UUID projectId,
+                                              MoveRequest request,
+                                              @Context SecurityContext ctx) {
 
         if (request.getSrc() == null || request.getSrc().isBlank()
                 || request.getDst() == null || request.getDst().isBlank()) {
-            logError("Move file failed: invalid paths");
-            return Response.status(400).entity(new ErrorInfo("The source or destination path is invalid")).build();
+            logger.error("Move file failed: invalid paths");
+            return done(Response.status(400).entity(new ErrorInfo("The source or destination path is invalid")).build());
         }
 
+        RequestTrace.current().setPath(request.getSrc() + " -> " + request.getDst());
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user   = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Move file failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("Move file failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Move file failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("Move file failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path srcPath     = projectPath.resolve(request.getSrc()).normalize();
-            Path dstPath     = projectPath.resolve(request.getDst()).normalize();
-
-            if (!srcPath.startsWith(projectPath) || !dstPath.startsWith(projectPath)) {
-                logError("Move file failed: path traversal attempt");
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
-            }
-            if (!Files.exists(srcPath)) {
-                logError("Move file failed: source not found - " + request.getSrc());
-                return Response.status(404).entity(new ErrorInfo("Source file not found")).build();
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path srcPath     = projectPath.resolve(request.getSrc()).normalize();
+                Path dstPath     = projectPath.resolve(request.getDst()).normalize();
+
+                if (!srcPath.startsWith(projectPath) || !dstPath.startsWith(projectPath)) {
+                    logger.error("Move file failed: path traversal attempt");
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (!Files.exists(srcPath)) {
+                    logger.error("Move file failed: source not found - " + request.getSrc());
+                    return Response.status(404).entity(new ErrorInfo("Source file not found")).build();
+                }
+                if (Files.exists(dstPath)) {
+                    logger.error("Move file failed: destination already exists - " + request.getDst());
+                    return Response.status(409).entity(new ErrorInfo("The file already exists")).build();
+                }
+
+                Files.createDirectories(dstPath.getParent());
+                Files.move(srcPath, dstPath);
+
+                logger.info("User " + userId + " moved file from " + request.getSrc() + " to " + request.getDst() + " in project " + projectId);
+                return Response.noContent().build();
+
+            } catch (IOException e) {
+                logger.error("Move file failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to move file")).build();
             }
-            if (Files.exists(dstPath)) {
-                logError("Move file failed: destination already exists - " + request.getDst());
-                return Response.status(409).entity(new ErrorInfo("The file already exists")).build();
-            }
-
-            Files.createDirectories(dstPath.getParent());
-            Files.move(srcPath, dstPath);
-
-            log("User " + userId + " moved file from " + request.getSrc() + " to " + request.getDst() + " in project " + projectId);
-            return Response.noContent().build();
-
-        } catch (IOException e) {
-            logError("Move file failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to move file")).build();
-        }
+        });
     }
 
 
-    private boolean hasProjectAccess(ProjectModel project, UserModel user) {
-        return project.getOwner().getId().equals(user.getId())
-                || project.getMembers().stream().anyMatch(m -> m.getId().equals(user.getId()))
-                || user.getIsAdmin();
-    }
 
     private void deleteRecursively(Path path) throws IOException {
         if (Files.isDirectory(path)) {
@@ -315,22 +402,4 @@ public class FileResource {
         }
         Files.delete(path);
     }
-
-    private void log(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] %s%n", timestamp, message);
-        try (FileWriter writer = new FileWriter(logFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) { System.out.println(logMessage); }
-    }
-
-    private void logError(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] ERROR: %s%n", timestamp, message);
-        try (FileWriter writer = new FileWriter(errorLogFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) { System.err.println(logMessage); }
-    }
 }
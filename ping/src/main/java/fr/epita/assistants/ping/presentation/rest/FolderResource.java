@@ -1,29 +1,36 @@
 package fr.epita.assistants.ping.presentation.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.epita.assistants.ping.data.dto.*;
-import fr.epita.assistants.ping.data.model.ProjectModel;
-import fr.epita.assistants.ping.data.model.UserModel;
+import fr.epita.assistants.ping.service.IoExecutor;
+import fr.epita.assistants.ping.service.ProjectAccess;
+import fr.epita.assistants.ping.service.ProjectAccessService;
+import fr.epita.assistants.ping.service.RowSink;
 import fr.epita.assistants.ping.utils.ErrorInfo;
+import fr.epita.assistants.ping.utils.Logger;
+import fr.epita.assistants.ping.utils.RequestTrace;
 import io.quarkus.security.Authenticated;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.transaction.Transactional;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.*;                       // JAX-RS annotations (except we’ll qualify @Path)
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;                   // filesystem Path
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.List;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import static fr.epita.assistants.ping.service.IoExecutor.done;
 
 
 @jakarta.ws.rs.Path("/api/projects/{projectId}/folders")
@@ -33,226 +40,257 @@ import java.util.UUID;
 @Consumes(MediaType.APPLICATION_JSON)
 public class FolderResource {
 
-    @ConfigProperty(name = "LOG_FILE")
-    String logFile;
+    @Inject
+    Logger logger;
+
+    @Inject
+    ProjectAccessService accessService;
+
+    @Inject
+    IoExecutor io;
 
-    @ConfigProperty(name = "ERROR_LOG_FILE")
-    String errorLogFile;
+    @Inject
+    ObjectMapper mapper;
+
+    @ConfigProperty(name = "ping.stream.flush-every", defaultValue = "256")
+    int flushEvery;
 
     @GET
-    public Response listFolder(@PathParam("projectId") UUID projectId,
-                               @QueryParam("path") @DefaultValue("") String relativePath,
-                               @Context SecurityContext ctx) {
+    public CompletionStage<Response> listFolder(@PathParam("projectId") UUID projectId,
+                                                @QueryParam("path") @DefaultValue("") String relativePath,
+                                                @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                                                @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince,
+                                                @Context SecurityContext ctx) {
 
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("List folder failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("List folder failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("List folder failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("List folder failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path folderPath  = projectPath.resolve(relativePath).normalize();
-
-            if (!folderPath.startsWith(projectPath)) {
-                logError("List folder failed: path traversal attempt - " + relativePath);
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path folderPath  = projectPath.resolve(relativePath).normalize();
+
+                if (!folderPath.startsWith(projectPath)) {
+                    logger.error("List folder failed: path traversal attempt - " + relativePath);
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (!Files.exists(folderPath) || !Files.isDirectory(folderPath)) {
+                    logger.error("List folder failed: folder not found - " + relativePath);
+                    return Response.status(404).entity(new ErrorInfo("Folder not found")).build();
+                }
+
+                // The listing only shows names and types, which any add, remove or rename
+                // of an entry reflects in the directory's own mtime
+                BasicFileAttributes attributes = Files.readAttributes(folderPath, BasicFileAttributes.class);
+                String tag = Conditional.fileTag(attributes);
+                Instant modified = Conditional.lastModified(attributes);
+                Response notModified = Conditional.notModified(ifNoneMatch, ifModifiedSince, tag, modified);
+                if (notModified != null) {
+                    return notModified;
+                }
+
+                // the body is read after the 200 is sent: an unreadable folder must fail here, while
+                // an ErrorInfo can still be answered. Opening it is what the listing will do.
+                Files.newDirectoryStream(folderPath).close();
+
+                logger.info("User " + userId + " listed folder " + relativePath + " in project " + projectId);
+                return Conditional.tagged(Response.ok(new JsonArrayOutput(mapper, flushEvery,
+                        sink -> writeEntries(projectPath, folderPath, sink))), tag, modified).build();
+            } catch (IOException e) {
+                logger.error("List folder failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to read folder")).build();
             }
-            if (!Files.exists(folderPath) || !Files.isDirectory(folderPath)) {
-                logError("List folder failed: folder not found - " + relativePath);
-                return Response.status(404).entity(new ErrorInfo("Folder not found")).build();
-            }
-
-            List<FSEntryResponse> entries = new ArrayList<>();
-            Files.list(folderPath).forEach(path -> {
-                String name       = path.getFileName().toString();
-                String entryPath  = projectPath.relativize(path).toString();
-                boolean directory = Files.isDirectory(path);
-                entries.add(new FSEntryResponse(name, entryPath, directory));
-            });
-
-            log("User " + userId + " listed folder " + relativePath + " in project " + projectId);
-            return Response.ok(entries).build();
-
-        } catch (IOException e) {
-            logError("List folder failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to list folder")).build();
-        }
+        });
     }
 
 
     @POST
-    @Transactional
-    public Response createFolder(@PathParam("projectId") UUID projectId,
-                                 PathRequest request,
-                                 @Context SecurityContext ctx) {
+    public CompletionStage<Response> createFolder(@PathParam("projectId") UUID projectId,
+                                                  PathRequest request,
+                                                  @Context SecurityContext ctx) {
 
         if (request.getRelativePath() == null || request.getRelativePath().isBlank()) {
-            logError("Create folder failed: invalid path");
-            return Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build();
+            logger.error("Create folder failed: invalid path");
+            return done(Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build());
         }
 
+        RequestTrace.current().setPath(request.getRelativePath());
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user     = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Create folder failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("Create folder failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Create folder failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("Create folder failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path folderPath  = projectPath.resolve(request.getRelativePath()).normalize();
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path folderPath  = projectPath.resolve(request.getRelativePath()).normalize();
 
-            if (!folderPath.startsWith(projectPath)) {
-                logError("Create folder failed: path traversal attempt - " + request.getRelativePath());
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
-            }
-            if (Files.exists(folderPath)) {
-                logError("Create folder failed: folder already exists - " + request.getRelativePath());
-                return Response.status(409).entity(new ErrorInfo("The folder already exists")).build();
-            }
+                if (!folderPath.startsWith(projectPath)) {
+                    logger.error("Create folder failed: path traversal attempt - " + request.getRelativePath());
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (Files.exists(folderPath)) {
+                    logger.error("Create folder failed: folder already exists - " + request.getRelativePath());
+                    return Response.status(409).entity(new ErrorInfo("The folder already exists")).build();
+                }
 
-            Files.createDirectories(folderPath);
+                Files.createDirectories(folderPath);
 
-            log("User " + userId + " created folder " + request.getRelativePath() + " in project " + projectId);
-            return Response.status(201).build();
+                logger.info("User " + userId + " created folder " + request.getRelativePath() + " in project " + projectId);
+                return Response.status(201).build();
 
-        } catch (IOException e) {
-            logError("Create folder failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to create folder")).build();
-        }
+            } catch (IOException e) {
+                logger.error("Create folder failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to create folder")).build();
+            }
+        });
     }
 
 
     @DELETE
-    @Transactional
-    public Response deleteFolder(@PathParam("projectId") UUID projectId,
-                                 PathRequest request,
-                                 @Context SecurityContext ctx) {
+    public CompletionStage<Response> deleteFolder(@PathParam("projectId") UUID projectId,
+                                                  PathRequest request,
+                                                  @Context SecurityContext ctx) {
 
         if (request.getRelativePath() == null || request.getRelativePath().isBlank()) {
-            logError("Delete folder failed: invalid path");
-            return Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build();
+            logger.error("Delete folder failed: invalid path");
+            return done(Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build());
         }
 
+        RequestTrace.current().setPath(request.getRelativePath());
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user     = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Delete folder failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("Delete folder failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Delete folder failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("Delete folder failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path folderPath  = projectPath.resolve(request.getRelativePath()).normalize();
-
-            if (!folderPath.startsWith(projectPath)) {
-                logError("Delete folder failed: path traversal attempt - " + request.getRelativePath());
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
-            }
-            if (!Files.exists(folderPath) || !Files.isDirectory(folderPath)) {
-                logError("Delete folder failed: folder not found - " + request.getRelativePath());
-                return Response.status(404).entity(new ErrorInfo("The folder could not be found")).build();
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path folderPath  = projectPath.resolve(request.getRelativePath()).normalize();
+
+                if (!folderPath.startsWith(projectPath)) {
+                    logger.error("Delete folder failed: path traversal attempt - " + request.getRelativePath());
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (!Files.exists(folderPath) || !Files.isDirectory(folderPath)) {
+                    logger.error("Delete folder failed: folder not found - " + request.getRelativePath());
+                    return Response.status(404).entity(new ErrorInfo("The folder could not be found")).build();
+                }
+
+                if (folderPath.equals(projectPath)) {
+                    Files.list(folderPath).forEach(p -> {
+                        try { deleteRecursively(p); } catch (IOException e) { throw new RuntimeException(e); }
+                    });
+                } else {
+                    deleteRecursively(folderPath);
+                }
+
+                logger.info("User " + userId + " deleted folder " + request.getRelativePath() + " in project " + projectId);
+                return Response.noContent().build();
+
+            } catch (IOException e) {
+                logger.error("Delete folder failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to delete folder")).build();
             }
-
-            if (folderPath.equals(projectPath)) {
-                Files.list(folderPath).forEach(p -> {
-                    try { deleteRecursively(p); } catch (IOException e) { throw new RuntimeException(e); }
-                });
-            } else {
-                deleteRecursively(folderPath);
-            }
-
-            log("User " + userId + " deleted folder " + request.getRelativePath() + " in project " + projectId);
-            return Response.noContent().build();
-
-        } catch (IOException e) {
-            logError("Delete folder failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to delete folder")).build();
-        }
+        });
     }
 
     @PUT
     @jakarta.ws.rs.Path("/move")
-    @Transactional
-    public Response moveFolder(@PathParam("projectId") UUID projectId,
-                               MoveRequest request,
-                               @Context SecurityContext ctx) {
+    public CompletionStage<Response> moveFolder(@PathParam("projectId") UUID projectId,
+                                                MoveRequest request,
+                                                @Context SecurityContext ctx) {
 
         if (request.getSrc() == null || request.getSrc().isBlank()
                 || request.getDst() == null || request.getDst().isBlank()) {
-            logError("Move folder failed: invalid paths");
-            return Response.status(400).entity(new ErrorInfo("The source or destination path is invalid")).build();
+            logger.error("Move folder failed: invalid paths");
+            return done(Response.status(400).entity(new ErrorInfo("The source or destination path is invalid")).build());
         }
 
+        RequestTrace.current().setPath(request.getSrc() + " -> " + request.getDst());
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user     = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(projectId);
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Move folder failed: project not found - " + projectId);
-            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        if (access == null) {
+            logger.error("Move folder failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
         }
-        if (!hasProjectAccess(project, user)) {
-            logError("Move folder failed: unauthorized access by " + userId + " to project " + projectId);
-            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        if (!access.allowed()) {
+            logger.error("Move folder failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
 
-        try {
-            Path projectPath = Paths.get(project.getPath());
-            Path srcPath     = projectPath.resolve(request.getSrc()).normalize();
-            Path dstPath     = projectPath.resolve(request.getDst()).normalize();
-
-            if (!srcPath.startsWith(projectPath) || !dstPath.startsWith(projectPath)) {
-                logError("Move folder failed: path traversal attempt");
-                return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
-            }
-            if (!Files.exists(srcPath) || !Files.isDirectory(srcPath)) {
-                logError("Move folder failed: source not found - " + request.getSrc());
-                return Response.status(404).entity(new ErrorInfo("Source folder not found")).build();
-            }
-            if (Files.exists(dstPath)) {
-                logError("Move folder failed: destination already exists - " + request.getDst());
-                return Response.status(409).entity(new ErrorInfo("The folder already exists")).build();
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path srcPath     = projectPath.resolve(request.getSrc()).normalize();
+                Path dstPath     = projectPath.resolve(request.getDst()).normalize();
+
+                if (!srcPath.startsWith(projectPath) || !dstPath.startsWith(projectPath)) {
+                    logger.error("Move folder failed: path traversal attempt");
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (!Files.exists(srcPath) || !Files.isDirectory(srcPath)) {
+                    logger.error("Move folder failed: source not found - " + request.getSrc());
+                    return Response.status(404).entity(new ErrorInfo("Source folder not found")).build();
+                }
+                if (Files.exists(dstPath)) {
+                    logger.error("Move folder failed: destination already exists - " + request.getDst());
+                    return Response.status(409).entity(new ErrorInfo("The folder already exists")).build();
+                }
+
+                Files.createDirectories(dstPath.getParent());
+                Files.move(srcPath, dstPath);
+
+                logger.info("User " + userId + " moved folder from " + request.getSrc() + " to " + request.getDst() + " in project " + projectId);
+                return Response.noContent().build();
+
+            } catch (IOException e) {
+                logger.error("Move folder failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to move folder")).build();
             }
+        });
+    }
 
-            Files.createDirectories(dstPath.getParent());
-            Files.move(srcPath, dstPath);
-
-            log("User " + userId + " moved folder from " + request.getSrc() + " to " + request.getDst() + " in project " + projectId);
-            return Response.noContent().build();
 
-        } catch (IOException e) {
-            logError("Move folder failed: " + e.getMessage());
-            return Response.status(500).entity(new ErrorInfo("Failed to move folder")).build();
+    /**
+     * Hands every entry of {@code folderPath} to {@code sink} as the directory is read, so a folder
+     * with many entries is never held in memory.
+     */
+    void writeEntries(Path projectPath, Path folderPath, RowSink<Object> sink) throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(folderPath)) {
+            for (Path path : paths) {
+                String name       = path.getFileName().toString();
+                String entryPath  = projectPath.relativize(path).toString();
+                boolean directory = Files.isDirectory(path);
+                sink.accept(new FSEntryResponse(name, entryPath, directory));
+            }
         }
     }
 
-    private boolean hasProjectAccess(ProjectModel project, UserModel user) {
-        return project.getOwner().getId().equals(user.getId())
-                || project.getMembers().stream().anyMatch(m -> m.getId().equals(user.getId()))
-                || user.getIsAdmin();
-    }
-
     private void deleteRecursively(Path path) throws IOException {
         if (Files.isDirectory(path)) {
             Files.list(path).forEach(p -> {
@@ -261,22 +299,4 @@ public class FolderResource {
         }
         Files.delete(path);
     }
-    //
-    private void log(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] %s%n", timestamp, message);
-        try (FileWriter writer = new FileWriter(logFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) { System.out.println(logMessage); }
-    }
-
-    private void logError(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] ERROR: %s%n", timestamp, message);
-        try (FileWriter writer = new FileWriter(errorLogFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) { System.err.println(logMessage); }
-    }
 }
@@ -0,0 +1,50 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.epita.assistants.ping.service.RowSink;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JSON array body written element by element with the Jackson streaming generator, flushed every
+ * {@code flushEvery} elements. Nothing but the current element is held in memory, so large listings
+ * keep a flat heap whatever their size.
+ *
+ * The headers and status are already sent when the source runs: check everything that can fail
+ * with a proper status (access, existence) before building the response.
+ */
+final class JsonArrayOutput implements StreamingOutput {
+
+    interface Source {
+        void forEach(RowSink<Object> sink) throws IOException;
+    }
+
+    private final ObjectMapper mapper;
+    private final int flushEvery;
+    private final Source source;
+
+    JsonArrayOutput(ObjectMapper mapper, int flushEvery, Source source) {
+        this.mapper = mapper;
+        this.flushEvery = Math.max(1, flushEvery);
+        this.source = source;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            int[] written = {0};
+            source.forEach(element -> {
+                generator.writeObject(element);
+                if (++written[0] % flushEvery == 0) {
+                    generator.flush();
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.service.MetricsRegistry;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Prometheus scrape endpoint. Unauthenticated, so by default only answers loopback clients.
+ */
+@Path("/metrics")
+@ApplicationScoped
+public class MetricsResource {
+
+    @ConfigProperty(name = "ping.metrics.local-only", defaultValue = "true")
+    boolean localOnly;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @GET
+    @Produces("text/plain; version=0.0.4")
+    public Response scrape(@Context HttpServerRequest request) {
+        if (localOnly && !isLoopback(request)) {
+            return Response.status(403).build();
+        }
+        return Response.ok(metrics.scrape()).build();
+    }
+
+    private boolean isLoopback(HttpServerRequest request) {
+        if (request.remoteAddress() == null) {
+            return false;
+        }
+        try {
+            return InetAddress.getByName(request.remoteAddress().host()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.service.ListQuery;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Response headers of keyset paginated listings: X-Next-Cursor (the {@code after} of the next page,
+ * absent on the last one) and, when asked for, X-Total-Count. The body stays a plain JSON array.
+ */
+final class Pagination {
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+    static final String TOTAL_COUNT = "X-Total-Count";
+
+    private Pagination() {
+    }
+
+    /**
+     * @param total number of rows over every page, null when not requested
+     */
+    static <T> Response.ResponseBuilder page(Response.ResponseBuilder response, ListQuery query, List<T> rows,
+                                             Function<T, UUID> id, Long total) {
+        if (query.limit() != null && rows.size() == query.limit()) {
+            response.header(NEXT_CURSOR, id.apply(rows.get(rows.size() - 1)));
+        }
+        if (total != null) {
+            response.header(TOTAL_COUNT, total);
+        }
+        return response;
+    }
+
+    /**
+     * Headers of an unpaginated listing, streamed as a {@link JsonArrayOutput}: there is no next page.
+     */
+    static Response.ResponseBuilder all(Response.ResponseBuilder response, Long total) {
+        if (total != null) {
+            response.header(TOTAL_COUNT, total);
+        }
+        return response;
+    }
+}
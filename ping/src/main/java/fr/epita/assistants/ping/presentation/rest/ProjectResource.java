@@ -1,11 +1,24 @@
 package fr.epita.assistants.ping.presentation.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.epita.assistants.ping.data.dto.*;
 import fr.epita.assistants.ping.data.model.ProjectModel;
 import fr.epita.assistants.ping.data.model.UserModel;
 import fr.epita.assistants.ping.domain.executor.FeatureExecutor;
+import fr.epita.assistants.ping.service.EntityTags;
 import fr.epita.assistants.ping.service.GitExecutor;
+import fr.epita.assistants.ping.service.IoExecutor;
+import fr.epita.assistants.ping.service.ListQuery;
+import fr.epita.assistants.ping.service.ProjectAccess;
+import fr.epita.assistants.ping.service.ProjectAccessCache;
+import fr.epita.assistants.ping.service.ProjectAccessService;
+import fr.epita.assistants.ping.service.ProjectListing;
+import fr.epita.assistants.ping.service.ProjectProvisioner;
+import fr.epita.assistants.ping.service.ProjectTrash;
 import fr.epita.assistants.ping.utils.ErrorInfo;
+import fr.epita.assistants.ping.utils.Logger;
+import fr.epita.assistants.ping.utils.RequestTrace;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.security.Authenticated;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -14,56 +27,102 @@ import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.Path;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
+import static fr.epita.assistants.ping.service.IoExecutor.done;
+
 @Path("/api/projects")
 @ApplicationScoped
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class ProjectResource {
 
+    private static final int MAX_BATCH_MEMBERS = 1000;
+    private static final int MAX_BATCH_PROJECTS = 1000;
+    // owners and members across a whole batch, all loaded by one IN query
+    private static final int MAX_BATCH_USERS = 2000;
+
     @ConfigProperty(name = "PROJECT_DEFAULT_PATH")
     String projectDefaultPath;
 
-    @ConfigProperty(name = "LOG_FILE")
-    String logFile;
+    @Inject
+    Logger logger;
 
-    @ConfigProperty(name = "ERROR_LOG_FILE")
-    String errorLogFile;
+    @Inject
+    ProjectAccessCache accessCache;
+
+    @Inject
+    ProjectAccessService accessService;
 
     @Inject
     GitExecutor gitExecutor;
 
+    @Inject
+    IoExecutor io;
+
+    @Inject
+    ProjectProvisioner provisioner;
+
+    @Inject
+    ProjectTrash trash;
+
+    @Inject
+    ProjectListing projectListing;
+
+    @Inject
+    EntityTags entityTags;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @ConfigProperty(name = "ping.stream.flush-every", defaultValue = "256")
+    int flushEvery;
+
     @GET
     @Authenticated
-    public Response listProjects(@QueryParam("onlyOwned") Boolean onlyOwned, @Context SecurityContext ctx) {
+    public Response listProjects(@QueryParam("onlyOwned") Boolean onlyOwned,
+                                 @QueryParam("limit") Integer limit,
+                                 @QueryParam("after") UUID after,
+                                 @QueryParam("name") String name,
+                                 @QueryParam("count") @DefaultValue("false") boolean count,
+                                 @Context Request request,
+                                 @Context SecurityContext ctx) {
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
-
-        List<ProjectModel> projects;
-        if (Boolean.TRUE.equals(onlyOwned)) {
-            projects = ProjectModel.find("owner", user).list();
-        } else {
-            projects = ProjectModel.find("owner = ?1 or ?2 member of members", user, user).list();
+        ListQuery query = new ListQuery(limit, after, name);
+        if (!query.isValid()) {
+            logger.error("List projects failed: invalid limit " + limit);
+            return Response.status(400).entity(new ErrorInfo("The limit must be between 1 and " + ListQuery.MAX_LIMIT)).build();
         }
 
-        log("User " + userId + " listed projects (onlyOwned=" + onlyOwned + ")");
+        boolean owned = Boolean.TRUE.equals(onlyOwned);
+        logger.info("User " + userId + " listed projects (onlyOwned=" + onlyOwned + ")");
 
-        return Response.ok(projects.stream()
-                .map(this::toProjectResponse)
-                .collect(Collectors.toList())).build();
+        String tag = entityTags.listing();
+        Response notModified = Conditional.notModified(request, tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        Long total = count ? projectListing.count(userId, owned, query) : null;
+        if (limit == null) {
+            return Conditional.tagged(Pagination.all(Response.ok(new JsonArrayOutput(mapper, flushEvery,
+                    sink -> projectListing.stream(userId, owned, query, sink))), total), tag).build();
+        }
+        List<ProjectResponse> projects = projectListing.find(userId, owned, query);
+        return Conditional.tagged(Pagination.page(Response.ok(projects), query, projects, ProjectResponse::getId, total),
+                tag).build();
     }
 
     @POST
@@ -73,7 +132,7 @@ public class ProjectResource {
                                   @Context SecurityContext ctx) {
 
         if (request.getName() == null || request.getName().isBlank()) {
-            logError("Create project failed: invalid name");
+            logger.error("Create project failed: invalid name");
             return Response.status(400)
                     .entity(new ErrorInfo("The project name is invalid"))
                     .build();
@@ -82,28 +141,14 @@ public class ProjectResource {
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
         UserModel user = UserModel.findById(userId);
 
-        ProjectModel project = new ProjectModel();
-        project.setName(request.getName());
-        project.setOwner(user);
-        project.getMembers().clear();
-        project.getMembers().add(user);
-
-        UUID tempId = UUID.randomUUID();
-        String projectPath = projectDefaultPath + tempId;
-        project.setPath(projectPath);
-
-        project.persist();
-        project.flush();
-
-        projectPath = projectDefaultPath + project.getId();
-        project.setPath(projectPath);
+        ProjectModel project = ProjectModel.create(request.getName(), user, projectDefaultPath);
         project.persist();
 
-        try {
-            Files.createDirectories(Paths.get(projectPath));
-            log("User " + userId + " created project: " + project.getId());
+        try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+            Files.createDirectories(Paths.get(project.getPath()));
+            logger.info("User " + userId + " created project: " + project.getId());
         } catch (IOException e) {
-            logError("Failed to create project directory: " + e.getMessage());
+            logger.error("Failed to create project directory: " + e.getMessage());
             project.delete();   
             return Response.status(500)
                     .entity(new ErrorInfo("Failed to create project directory"))
@@ -113,38 +158,144 @@ public class ProjectResource {
         return Response.ok(toProjectResponse(project)).build();
     }
 
+    /**
+     * Provisions many projects at once (a class, a semester): one transaction for the rows, written as
+     * JDBC batches, then the directories and starter files created in parallel. Nothing is kept if
+     * any user is unknown or any directory cannot be created.
+     */
+    @POST
+    @Path("/batch")
+    @RolesAllowed("admin")
+    @Transactional
+    public Response createProjects(NewProjectBatchRequest request, @Context SecurityContext ctx) {
+        if (request == null || request.getProjects() == null || request.getProjects().isEmpty()
+                || request.getProjects().size() > MAX_BATCH_PROJECTS) {
+            logger.error("Create projects failed: invalid project list");
+            return Response.status(400).entity(new ErrorInfo("The project list is invalid")).build();
+        }
+
+        Set<UUID> userIds = new HashSet<>();
+        for (NewProjectBatchEntry entry : request.getProjects()) {
+            if (entry == null || entry.getName() == null || entry.getName().isBlank() || entry.getOwnerId() == null
+                    || (entry.getMemberIds() != null && (entry.getMemberIds().size() > MAX_BATCH_MEMBERS
+                        || entry.getMemberIds().contains(null)))) {
+                logger.error("Create projects failed: invalid project entry");
+                return Response.status(400).entity(new ErrorInfo("The project name or owner is invalid")).build();
+            }
+            userIds.add(entry.getOwnerId());
+            if (entry.getMemberIds() != null) {
+                userIds.addAll(entry.getMemberIds());
+            }
+            if (userIds.size() > MAX_BATCH_USERS) {
+                logger.error("Create projects failed: more than " + MAX_BATCH_USERS + " distinct users");
+                return Response.status(400).entity(new ErrorInfo("The batch names too many users")).build();
+            }
+        }
+
+        Map<java.nio.file.Path, byte[]> files = new LinkedHashMap<>();
+        if (request.getFiles() != null) {
+            for (Map.Entry<String, String> file : request.getFiles().entrySet()) {
+                java.nio.file.Path relative = Paths.get(file.getKey()).normalize();
+                // "." or "a/.." normalise to the project directory itself
+                if (file.getKey().isBlank() || relative.isAbsolute() || relative.startsWith("..")
+                        || relative.toString().isEmpty()) {
+                    logger.error("Create projects failed: invalid starter file path - " + file.getKey());
+                    return Response.status(400).entity(new ErrorInfo("The starter file path is invalid")).build();
+                }
+                files.put(relative, file.getValue() == null ? new byte[0] : file.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        Map<UUID, UserModel> users = UserModel.<UserModel>list("id in ?1", userIds).stream()
+                .collect(Collectors.toMap(UserModel::getId, user -> user));
+        if (users.size() != userIds.size()) {
+            logger.error("Create projects failed: unknown users");
+            return Response.status(404).entity(new ErrorInfo("Some users could not be found")).build();
+        }
+
+        List<ProjectModel> projects = new ArrayList<>(request.getProjects().size());
+        for (NewProjectBatchEntry entry : request.getProjects()) {
+            ProjectModel project = ProjectModel.create(entry.getName(), users.get(entry.getOwnerId()), projectDefaultPath);
+            if (entry.getMemberIds() != null) {
+                entry.getMemberIds().forEach(member -> project.getMembers().add(users.get(member)));
+            }
+            projects.add(project);
+        }
+        ProjectModel.persist(projects);
+        ProjectModel.flush();
+
+        try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+            provisioner.createDirectories(projects.stream().map(p -> Paths.get(p.getPath())).toList(), files);
+        } catch (IOException e) {
+            logger.error("Create projects failed: " + e.getMessage());
+            QuarkusTransaction.setRollbackOnly();
+            return Response.status(500).entity(new ErrorInfo("Failed to create the project directories")).build();
+        }
+
+        logger.info("Admin " + ctx.getUserPrincipal().getName() + " created " + projects.size() + " projects");
+        return Response.ok(projects.stream().map(this::toProjectResponse).collect(Collectors.toList())).build();
+    }
+
     @GET
     @Path("/all")
     @RolesAllowed("admin")
-    public Response listAllProjects(@Context SecurityContext ctx) {
-        List<ProjectModel> projects = ProjectModel.listAll();
-        log("Admin " + ctx.getUserPrincipal().getName() + " listed all projects");
+    public Response listAllProjects(@QueryParam("limit") Integer limit,
+                                    @QueryParam("after") UUID after,
+                                    @QueryParam("name") String name,
+                                    @QueryParam("count") @DefaultValue("false") boolean count,
+                                    @Context SecurityContext ctx) {
+        ListQuery query = new ListQuery(limit, after, name);
+        if (!query.isValid()) {
+            logger.error("List all projects failed: invalid limit " + limit);
+            return Response.status(400).entity(new ErrorInfo("The limit must be between 1 and " + ListQuery.MAX_LIMIT)).build();
+        }
 
-        return Response.ok(projects.stream()
-                .map(this::toProjectResponse)
-                .collect(Collectors.toList())).build();
+        Long total = count ? projectListing.count(null, false, query) : null;
+        logger.info("Admin " + ctx.getUserPrincipal().getName() + " listed all projects");
+
+        if (limit == null) {
+            return Pagination.all(Response.ok(new JsonArrayOutput(mapper, flushEvery,
+                    sink -> projectListing.stream(null, false, query, sink))), total).build();
+        }
+        List<ProjectResponse> projects = projectListing.find(null, false, query);
+        return Pagination.page(Response.ok(projects), query, projects, ProjectResponse::getId, total).build();
     }
 
     @GET
     @Path("/{id}")
     @Authenticated
-    public Response getProject(@PathParam("id") UUID id, @Context SecurityContext ctx) {
+    public Response getProject(@PathParam("id") UUID id, @Context Request request, @Context SecurityContext ctx) {
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(id);
+        ProjectAccess access = accessService.resolve(id, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Get project failed: project not found - " + id);
+        if (access == null) {
+            logger.error("Get project failed: project not found - " + id);
             return Response.status(404).entity(new ErrorInfo("Project not found")).build();
         }
 
-        if (!hasProjectAccess(project, user)) {
-            logError("Get project failed: unauthorized access by " + userId + " to project " + id);
+        if (!access.allowed()) {
+            logger.error("Get project failed: unauthorized access by " + userId + " to project " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
         }
 
-        log("User " + userId + " accessed project: " + id);
-        return Response.ok(toProjectResponse(project)).build();
+        String tag = entityTags.project(id);
+        if (tag == null) {
+            logger.error("Get project failed: project not found - " + id);
+            return Response.status(404).entity(new ErrorInfo("Project not found")).build();
+        }
+        logger.info("User " + userId + " accessed project: " + id);
+
+        Response notModified = Conditional.notModified(request, tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        // the access and the tag can be cached from before a concurrent delete
+        ProjectModel project = ProjectModel.findById(id);
+        if (project == null) {
+            logger.error("Get project failed: project not found - " + id);
+            return Response.status(404).entity(new ErrorInfo("Project not found")).build();
+        }
+        return Conditional.tagged(Response.ok(toProjectResponse(project)), tag).build();
     }
 
     @PUT
@@ -153,21 +304,20 @@ public class ProjectResource {
     @Transactional
     public Response updateProject(@PathParam("id") UUID id, UpdateProjectRequest request, @Context SecurityContext ctx) {
         if (request.getName() == null && request.getNewOwnerId() == null) {
-            logError("Update project failed: all fields null");
+            logger.error("Update project failed: all fields null");
             return Response.status(400).entity(new ErrorInfo("Both the name and the new owner are null")).build();
         }
 
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
         ProjectModel project = ProjectModel.findById(id);
 
         if (project == null) {
-            logError("Update project failed: project not found - " + id);
+            logger.error("Update project failed: project not found - " + id);
             return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
         }
 
-        if (!project.getOwner().getId().equals(userId) && !user.getIsAdmin()) {
-            logError("Update project failed: unauthorized update by " + userId + " to project " + id);
+        if (!project.getOwner().getId().equals(userId) && !ctx.isUserInRole("admin")) {
+            logger.error("Update project failed: unauthorized update by " + userId + " to project " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
         }
 
@@ -177,17 +327,18 @@ public class ProjectResource {
 
         if (request.getNewOwnerId() != null) {
             UserModel newOwner = UserModel.findById(request.getNewOwnerId());
-            boolean isMember = newOwner != null &&
-                    project.getMembers().stream().anyMatch(m -> m.getId().equals(newOwner.getId()));
+            boolean isMember = newOwner != null && project.getMembers().contains(newOwner);
 
             if (newOwner == null || !isMember) {
-                logError("Update project failed: new owner not a member - " + request.getNewOwnerId());
+                logger.error("Update project failed: new owner not a member - " + request.getNewOwnerId());
                 return Response.status(404).entity(new ErrorInfo("The new owner is not a member of the project")).build();
             }
+            accessCache.invalidate(id, project.getOwner().getId());
+            accessCache.invalidate(id, newOwner.getId());
             project.setOwner(newOwner);
         }
 
-        log("User " + userId + " updated project: " + id);
+        logger.info("User " + userId + " updated project: " + id);
         return Response.ok(toProjectResponse(project)).build();
     }
 
@@ -197,28 +348,28 @@ public class ProjectResource {
     @Transactional
     public Response deleteProject(@PathParam("id") UUID id, @Context SecurityContext ctx) {
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
         ProjectModel project = ProjectModel.findById(id);
 
         if (project == null) {
-            logError("Delete project failed: project not found - " + id);
+            logger.error("Delete project failed: project not found - " + id);
             return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
         }
 
-        if (!project.getOwner().getId().equals(userId) && !user.getIsAdmin()) {
-            logError("Delete project failed: unauthorized delete by " + userId + " to project " + id);
+        if (!project.getOwner().getId().equals(userId) && !ctx.isUserInRole("admin")) {
+            logger.error("Delete project failed: unauthorized delete by " + userId + " to project " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed to access this project")).build();
         }
 
-        // Delete
-        try {
-            deleteDirectory(new File(project.getPath()));
-        } catch (Exception e) {
-            logError("Failed to delete project directory: " + e.getMessage());
+        // Moved to the trash, reclaimed in the background once the delete commits
+        try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+            trash.trash(Paths.get(project.getPath()), id);
+        } catch (IOException e) {
+            logger.error("Failed to move project directory to the trash: " + e.getMessage());
         }
 
         project.delete();
-        log("User " + userId + " deleted project: " + id);
+        accessCache.invalidateProject(id);
+        logger.info("User " + userId + " deleted project: " + id);
 
         return Response.noContent().build();
     }
@@ -229,37 +380,44 @@ public class ProjectResource {
     @Transactional
     public Response addMember(@PathParam("id") UUID id, UserProjectRequest request, @Context SecurityContext ctx) {
         if (request.getUserId() == null) {
-            logError("Add member failed: invalid userId");
+            logger.error("Add member failed: invalid userId");
             return Response.status(400).entity(new ErrorInfo("The userId is invalid")).build();
         }
 
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
-        ProjectModel project = ProjectModel.findById(id);
+        ProjectAccess access = accessService.resolve(id, userId, ctx.isUserInRole("admin"));
 
-        if (project == null) {
-            logError("Add member failed: project not found - " + id);
+        if (access == null) {
+            logger.error("Add member failed: project not found - " + id);
             return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
         }
 
-        if (!hasProjectAccess(project, user)) {
-            logError("Add member failed: unauthorized access by " + userId + " to project " + id);
+        if (!access.allowed()) {
+            logger.error("Add member failed: unauthorized access by " + userId + " to project " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
         }
 
+        ProjectModel project = ProjectModel.findById(id);
+        if (project == null) {
+            logger.error("Add member failed: project not found - " + id);
+            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        }
+
         UserModel newMember = UserModel.findById(request.getUserId());
         if (newMember == null) {
-            logError("Add member failed: user not found - " + request.getUserId());
+            logger.error("Add member failed: user not found - " + request.getUserId());
             return Response.status(404).entity(new ErrorInfo("The user could not be found")).build();
         }
 
-        if (project.getMembers().stream().anyMatch(m -> m.getId().equals(newMember.getId()))) {
-            logError("Add member failed: user already a member - " + request.getUserId());
+        if (project.getMembers().contains(newMember)) {
+            logger.error("Add member failed: user already a member - " + request.getUserId());
             return Response.status(409).entity(new ErrorInfo("The user is already a member of the project")).build();
         }
 
+        project.touchMembers();
         project.getMembers().add(newMember);
-        log("User " + userId + " added member " + request.getUserId() + " to project " + id);
+        accessCache.invalidate(id, newMember.getId());
+        logger.info("User " + userId + " added member " + request.getUserId() + " to project " + id);
 
         return Response.noContent().build();
     }
@@ -270,91 +428,182 @@ public class ProjectResource {
     @Transactional
     public Response removeMember(@PathParam("id") UUID id, UserProjectRequest request, @Context SecurityContext ctx) {
         if (request.getUserId() == null) {
-            logError("Remove member failed: invalid userId");
+            logger.error("Remove member failed: invalid userId");
             return Response.status(400).entity(new ErrorInfo("The userId is invalid")).build();
         }
 
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
         ProjectModel project = ProjectModel.findById(id);
 
         if (project == null) {
-            logError("Remove member failed: project not found - " + id);
+            logger.error("Remove member failed: project not found - " + id);
             return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
         }
 
-        if (!project.getOwner().getId().equals(userId) && !user.getIsAdmin()) {
-            logError("Remove member failed: unauthorized access by " + userId + " to project " + id);
+        if (!project.getOwner().getId().equals(userId) && !ctx.isUserInRole("admin")) {
+            logger.error("Remove member failed: unauthorized access by " + userId + " to project " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
         }
 
         UserModel memberToRemove = UserModel.findById(request.getUserId());
-        boolean isMember = memberToRemove != null &&
-                project.getMembers().stream().anyMatch(m -> m.getId().equals(memberToRemove.getId()));
+        boolean isMember = memberToRemove != null && project.getMembers().contains(memberToRemove);
 
         if (memberToRemove == null || !isMember) {
-            logError("Remove member failed: user not a member - " + request.getUserId());
+            logger.error("Remove member failed: user not a member - " + request.getUserId());
             return Response.status(404).entity(new ErrorInfo("The user is not a member of the project")).build();
         }
 
         if (project.getOwner().getId().equals(request.getUserId())) {
-            logError("Remove member failed: cannot remove owner - " + request.getUserId());
+            logger.error("Remove member failed: cannot remove owner - " + request.getUserId());
             return Response.status(403).entity(new ErrorInfo("Cannot remove the owner of the project")).build();
         }
 
-        project.getMembers().removeIf(m -> m.getId().equals(memberToRemove.getId()));
-        log("User " + userId + " removed member " + request.getUserId() + " from project " + id);
+        project.touchMembers();
+        project.getMembers().remove(memberToRemove);
+        accessCache.invalidate(id, memberToRemove.getId());
+        logger.info("User " + userId + " removed member " + request.getUserId() + " from project " + id);
 
         return Response.noContent().build();
     }
 
+    /**
+     * Adds every user of the request in one transaction, the join table rows going out as JDBC batches.
+     * Users who are already members are skipped; nothing is added if one of the users does not exist.
+     */
     @POST
-    @Path("/{id}/exec")
+    @Path("/{id}/add-users")
     @Authenticated
-    public Response executeFeature(@PathParam("id") UUID id, ExecFeatureRequest request, @Context SecurityContext ctx) {
-        if (request.getFeature() == null || request.getCommand() == null) {
-            logError("Execute feature failed: invalid parameters");
-            return Response.status(400).entity(new ErrorInfo("Feature or command is null")).build();
+    @Transactional
+    public Response addMembers(@PathParam("id") UUID id, UserProjectBatchRequest request, @Context SecurityContext ctx) {
+        if (!isValidBatch(request)) {
+            logger.error("Add members failed: invalid userIds");
+            return Response.status(400).entity(new ErrorInfo("The userIds are invalid")).build();
+        }
+
+        UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
+        ProjectAccess access = accessService.resolve(id, userId, ctx.isUserInRole("admin"));
+
+        if (access == null) {
+            logger.error("Add members failed: project not found - " + id);
+            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        }
+
+        if (!access.allowed()) {
+            logger.error("Add members failed: unauthorized access by " + userId + " to project " + id);
+            return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
+        }
+
+        Set<UUID> ids = new HashSet<>(request.getUserIds());
+        List<UserModel> users = UserModel.list("id in ?1", ids);
+        if (users.size() != ids.size()) {
+            logger.error("Add members failed: unknown users in " + ids);
+            return Response.status(404).entity(new ErrorInfo("Some users could not be found")).build();
+        }
+
+        ProjectModel project = ProjectModel.findById(id);
+        if (project == null) {
+            logger.error("Add members failed: project not found - " + id);
+            return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
+        }
+        project.touchMembers();
+        project.getMembers().addAll(users);
+        ids.forEach(member -> accessCache.invalidate(id, member));
+        logger.info("User " + userId + " added " + ids.size() + " members to project " + id);
+
+        return Response.noContent().build();
+    }
+
+    /**
+     * Removes every user of the request in one transaction, see {@link #addMembers}. Users who are not
+     * members are skipped; nothing is removed if the owner is in the list.
+     */
+    @POST
+    @Path("/{id}/remove-users")
+    @Authenticated
+    @Transactional
+    public Response removeMembers(@PathParam("id") UUID id, UserProjectBatchRequest request, @Context SecurityContext ctx) {
+        if (!isValidBatch(request)) {
+            logger.error("Remove members failed: invalid userIds");
+            return Response.status(400).entity(new ErrorInfo("The userIds are invalid")).build();
         }
 
         UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel user = UserModel.findById(userId);
         ProjectModel project = ProjectModel.findById(id);
 
         if (project == null) {
-            logError("Execute feature failed: project not found - " + id);
+            logger.error("Remove members failed: project not found - " + id);
             return Response.status(404).entity(new ErrorInfo("The project could not be found")).build();
         }
 
-        if (!hasProjectAccess(project, user)) {
-            logError("Execute feature failed: unauthorized access by " + userId + " to project " + id);
+        if (!project.getOwner().getId().equals(userId) && !ctx.isUserInRole("admin")) {
+            logger.error("Remove members failed: unauthorized access by " + userId + " to project " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build();
         }
 
-        if (!"git".equals(request.getFeature())) {
-            logError("Execute feature failed: unknown feature - " + request.getFeature());
-            return Response.status(400).entity(new ErrorInfo("Unknown feature")).build();
+        Set<UUID> ids = new HashSet<>(request.getUserIds());
+        if (ids.contains(project.getOwner().getId())) {
+            logger.error("Remove members failed: cannot remove owner - " + project.getOwner().getId());
+            return Response.status(403).entity(new ErrorInfo("Cannot remove the owner of the project")).build();
         }
 
-        try {
-            gitExecutor.execute(new File(project.getPath()), request);
-            log("User " + userId + " executed " + request.getFeature() + " " + request.getCommand() + " on project " + id);
-            return Response.noContent().build();
-        } catch (Exception e) {
-            logError("Execute feature failed: " + e.getMessage());
-            return Response.status(e.getMessage().contains("not a git repository") ? 400 : 500)
-                    .entity(new ErrorInfo(e.getMessage())).build();
+        project.touchMembers();
+        project.getMembers().removeIf(member -> ids.contains(member.getId()));
+        ids.forEach(member -> accessCache.invalidate(id, member));
+        logger.info("User " + userId + " removed " + ids.size() + " members from project " + id);
+
+        return Response.noContent().build();
+    }
+
+    @POST
+    @Path("/{id}/exec")
+    @Authenticated
+    public CompletionStage<Response> executeFeature(@PathParam("id") UUID id, ExecFeatureRequest request,
+                                                    @Context SecurityContext ctx) {
+        if (request.getFeature() == null || request.getCommand() == null) {
+            logger.error("Execute feature failed: invalid parameters");
+            return done(Response.status(400).entity(new ErrorInfo("Feature or command is null")).build());
+        }
+
+        UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
+        ProjectAccess access = accessService.resolve(id, userId, ctx.isUserInRole("admin"));
+
+        if (access == null) {
+            logger.error("Execute feature failed: project not found - " + id);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
+        }
+
+        if (!access.allowed()) {
+            logger.error("Execute feature failed: unauthorized access by " + userId + " to project " + id);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
         }
+
+        if (!"git".equals(request.getFeature())) {
+            logger.error("Execute feature failed: unknown feature - " + request.getFeature());
+            return done(Response.status(400).entity(new ErrorInfo("Unknown feature")).build());
+        }
+
+        return io.submit(id, () -> {
+            try {
+                gitExecutor.execute(new File(access.path()), request);
+                logger.info("User " + userId + " executed " + request.getFeature() + " " + request.getCommand() + " on project " + id);
+                return Response.noContent().build();
+            } catch (Exception e) {
+                logger.error("Execute feature failed: " + e.getMessage());
+                return Response.status(e.getMessage().contains("not a git repository") ? 400 : 500)
+                        .entity(new ErrorInfo(e.getMessage())).build();
+            }
+        });
     }
 
-    private boolean hasProjectAccess(ProjectModel project, UserModel user) {
-        return project.getOwner().getId().equals(user.getId()) ||
-                project.getMembers().stream().anyMatch(m -> m.getId().equals(user.getId())) ||
-                user.getIsAdmin();
+
+    private boolean isValidBatch(UserProjectBatchRequest request) {
+        return request != null && request.getUserIds() != null && !request.getUserIds().isEmpty()
+                && request.getUserIds().size() <= MAX_BATCH_MEMBERS && !request.getUserIds().contains(null);
     }
 
-    private ProjectResponse toProjectResponse(ProjectModel project) {
+    ProjectResponse toProjectResponse(ProjectModel project) {
         List<UserSummaryResponse> members = project.getMembers().stream()
+                .sorted(Comparator.comparing(UserModel::getId))
                 .map(this::toUserSummary)
                 .collect(Collectors.toList());
 
@@ -373,40 +622,4 @@ public class ProjectResource {
                 user.getAvatar()
         );
     }
-
-    private void deleteDirectory(File dir) throws IOException {
-        if (dir.isDirectory()) {
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    deleteDirectory(file);
-                }
-            }
-        }
-        Files.delete(dir.toPath());
-    }
-
-    private void log(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] %s\n", timestamp, message);
-
-        try (FileWriter writer = new FileWriter(logFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) {
-            System.out.println(logMessage);
-        }
-    }
-
-    private void logError(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] ERROR: %s\n", timestamp, message);
-
-        try (FileWriter writer = new FileWriter(errorLogFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) {
-            System.err.println(logMessage);
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.domain.audit.AuditRecord;
+import fr.epita.assistants.ping.service.AuditLog;
+import fr.epita.assistants.ping.service.MetricsRegistry;
+import fr.epita.assistants.ping.service.TimedJwtCallerPrincipal;
+import fr.epita.assistants.ping.utils.RequestTrace;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * Opens a {@link RequestTrace} for every resource call and, once the response status is known,
+ * records its latency and turns it into an audit record. Resources only have to fill in what the filter cannot see (body paths).
+ * The per-phase breakdown of the trace is sent back in a Server-Timing header.
+ */
+@Provider
+public class RequestFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final String TRACE_PROPERTY = RequestTrace.class.getName();
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Inject
+    AuditLog auditLog;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        RequestTrace trace = RequestTrace.begin();
+        request.setProperty(TRACE_PROPERTY, trace);
+
+        if (resourceInfo.getResourceMethod() != null) {
+            trace.setAction(resourceInfo.getResourceClass().getSimpleName() + "."
+                    + resourceInfo.getResourceMethod().getName());
+        }
+
+        MultivaluedMap<String, String> params = request.getUriInfo().getPathParameters();
+        String projectId = params.getFirst("projectId");
+        if (projectId == null && request.getUriInfo().getPath().startsWith("/api/projects/")) {
+            projectId = params.getFirst("id");
+        }
+        trace.setProjectId(parseUuid(projectId));
+        trace.setPath(request.getUriInfo().getQueryParameters().getFirst("path"));
+
+        if (request.getSecurityContext().getUserPrincipal() instanceof TimedJwtCallerPrincipal principal) {
+            trace.add(RequestTrace.Phase.JWT, principal.getVerifyNanos());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        RequestTrace trace = (RequestTrace) request.getProperty(TRACE_PROPERTY);
+        if (trace == null) {
+            return;
+        }
+        try {
+            long latency = trace.elapsedMicros();
+            if (resourceInfo.getResourceMethod() != null) {
+                metrics.recordRequest(resourceInfo.getResourceMethod(), response.getStatus(), latency);
+            }
+
+            UUID userId = trace.getUserId();
+            Principal principal = request.getSecurityContext().getUserPrincipal();
+            if (userId == null && principal != null) {
+                userId = parseUuid(principal.getName());
+            }
+            auditLog.record(new AuditRecord(trace.getStartMillis(), userId, trace.getProjectId(),
+                    trace.getAction(), trace.getPath(), response.getStatus(), latency));
+
+            response.getHeaders().putSingle("Server-Timing", trace.serverTiming());
+        } finally {
+            RequestTrace.end();
+        }
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.data.dto.FileUploadResponse;
+import fr.epita.assistants.ping.data.dto.NewUploadRequest;
+import fr.epita.assistants.ping.data.dto.UploadSessionResponse;
+import fr.epita.assistants.ping.service.AtomicFiles;
+import fr.epita.assistants.ping.service.IoExecutor;
+import fr.epita.assistants.ping.service.MetricsRegistry;
+import fr.epita.assistants.ping.service.ProjectAccess;
+import fr.epita.assistants.ping.service.ProjectAccessService;
+import fr.epita.assistants.ping.service.UploadSessions;
+import fr.epita.assistants.ping.utils.ErrorInfo;
+import fr.epita.assistants.ping.utils.Logger;
+import fr.epita.assistants.ping.utils.RequestTrace;
+import io.quarkus.security.Authenticated;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import static fr.epita.assistants.ping.service.IoExecutor.done;
+
+/**
+ * Resumable uploads of large files: create a session with the file size, PUT its chunks in any
+ * order (several at once), check which are in with GET, then complete. A chunk refused with 507
+ * (disk full) is not received and can be sent again. Completing answers like a single-shot upload.
+ * See {@link UploadSessions}.
+ */
+@jakarta.ws.rs.Path("/api/projects/{projectId}/uploads")
+@ApplicationScoped
+@Authenticated
+@Produces(MediaType.APPLICATION_JSON)
+public class UploadResource {
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    ProjectAccessService accessService;
+
+    @Inject
+    UploadSessions uploads;
+
+    @Inject
+    IoExecutor io;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public CompletionStage<Response> createUpload(@PathParam("projectId") UUID projectId,
+                                                  NewUploadRequest request,
+                                                  @Context SecurityContext ctx) {
+
+        if (request == null || request.getRelativePath() == null || request.getRelativePath().isBlank()) {
+            logger.error("Create upload failed: invalid path");
+            return done(Response.status(400).entity(new ErrorInfo("The relative path is invalid")).build());
+        }
+        if (request.getSize() == null) {
+            logger.error("Create upload failed: missing size");
+            return done(Response.status(400).entity(new ErrorInfo("The upload size is required")).build());
+        }
+
+        RequestTrace.current().setPath(request.getRelativePath());
+        UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
+
+        if (access == null) {
+            logger.error("Create upload failed: project not found - " + projectId);
+            return done(Response.status(404).entity(new ErrorInfo("The project could not be found")).build());
+        }
+        if (!access.allowed()) {
+            logger.error("Create upload failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
+        }
+
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                Path projectPath = Paths.get(access.path());
+                Path filePath    = projectPath.resolve(request.getRelativePath()).normalize();
+
+                if (!filePath.startsWith(projectPath) || filePath.equals(projectPath)) {
+                    logger.error("Create upload failed: path traversal attempt - " + request.getRelativePath());
+                    return Response.status(403).entity(new ErrorInfo("Path traversal detected")).build();
+                }
+                if (Files.isDirectory(filePath)) {
+                    logger.error("Create upload failed: folder exists at " + request.getRelativePath());
+                    return Response.status(409).entity(new ErrorInfo("A folder exists at this path")).build();
+                }
+
+                UploadSessions.Session session = uploads.open(projectId, userId, request.getRelativePath(), filePath,
+                        request.getSize(), request.getChunkSize());
+                logger.info("User " + userId + " started upload " + session.getId() + " of " + request.getRelativePath()
+                        + " (" + request.getSize() + " bytes) in project " + projectId);
+                return Response.status(201).entity(toUploadResponse(session)).build();
+
+            } catch (UploadSessions.UploadException e) {
+                logger.error("Create upload failed: " + e.getMessage());
+                return Response.status(e.getStatus()).entity(new ErrorInfo(e.getMessage())).build();
+            } catch (IOException e) {
+                logger.error("Create upload failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to create the upload")).build();
+            }
+        });
+    }
+
+    @GET
+    @jakarta.ws.rs.Path("/{uploadId}")
+    public Response getUpload(@PathParam("projectId") UUID projectId,
+                              @PathParam("uploadId") UUID uploadId,
+                              @Context SecurityContext ctx) {
+
+        UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
+        UploadSessions.Session session = session(projectId, uploadId, userId);
+
+        if (session == null) {
+            logger.error("Get upload failed: upload not found - " + uploadId);
+            return Response.status(404).entity(new ErrorInfo("The upload could not be found")).build();
+        }
+
+        return Response.ok(toUploadResponse(session)).build();
+    }
+
+    @PUT
+    @jakarta.ws.rs.Path("/{uploadId}/chunks/{index}")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    public CompletionStage<Response> putChunk(@PathParam("projectId") UUID projectId,
+                                              @PathParam("uploadId") UUID uploadId,
+                                              @PathParam("index") int index,
+                                              InputStream content,
+                                              @Context SecurityContext ctx) {
+
+        UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
+        UploadSessions.Session session = session(projectId, uploadId, userId);
+
+        if (session == null) {
+            logger.error("Put chunk failed: upload not found - " + uploadId);
+            return done(Response.status(404).entity(new ErrorInfo("The upload could not be found")).build());
+        }
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
+        if (access == null || !access.allowed()) {
+            logger.error("Put chunk failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
+        }
+
+        // the chunk goes to the part file in staging, not the project: no project slot while it is received
+        return io.receive(() -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                long written = uploads.writeChunk(session, index, content);
+                metrics.addBytesWritten(written);
+                return Response.noContent().build();
+
+            } catch (UploadSessions.UploadException e) {
+                logger.error("Put chunk failed: " + e.getMessage());
+                return Response.status(e.getStatus()).entity(new ErrorInfo(e.getMessage())).build();
+            } catch (IOException e) {
+                logger.error("Put chunk failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to write the chunk")).build();
+            }
+        });
+    }
+
+    @POST
+    @jakarta.ws.rs.Path("/{uploadId}/complete")
+    public CompletionStage<Response> completeUpload(@PathParam("projectId") UUID projectId,
+                                                    @PathParam("uploadId") UUID uploadId,
+                                                    @Context SecurityContext ctx) {
+
+        UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
+        UploadSessions.Session session = session(projectId, uploadId, userId);
+
+        if (session == null) {
+            logger.error("Complete upload failed: upload not found - " + uploadId);
+            return done(Response.status(404).entity(new ErrorInfo("The upload could not be found")).build());
+        }
+        ProjectAccess access = accessService.resolve(projectId, userId, ctx.isUserInRole("admin"));
+        if (access == null || !access.allowed()) {
+            logger.error("Complete upload failed: unauthorized access by " + userId + " to project " + projectId);
+            return done(Response.status(403).entity(new ErrorInfo("The user is not allowed to access the project")).build());
+        }
+
+        RequestTrace.current().setPath(session.getRelativePath());
+        return io.submit(projectId, () -> {
+            try (RequestTrace.Span fs = RequestTrace.phase(RequestTrace.Phase.FS)) {
+                AtomicFiles.Written written = uploads.complete(session);
+                logger.info("User " + userId + " uploaded file " + session.getRelativePath() + " in project " + projectId
+                        + " (upload " + uploadId + ", " + session.getChunkCount() + " chunks)");
+                // same answer as a single-shot upload
+                return Response.status(201)
+                        .entity(new FileUploadResponse(session.getRelativePath(), written.size(), written.sha256()))
+                        .tag(new EntityTag(Conditional.digestTag(written.sha256())))
+                        .build();
+
+            } catch (UploadSessions.UploadException e) {
+                logger.error("Complete upload failed: " + e.getMessage());
+                return Response.status(e.getStatus()).entity(new ErrorInfo(e.getMessage())).build();
+            } catch (IOException e) {
+                logger.error("Complete upload failed: " + e.getMessage());
+                return Response.status(500).entity(new ErrorInfo("Failed to complete the upload")).build();
+            }
+        });
+    }
+
+    @DELETE
+    @jakarta.ws.rs.Path("/{uploadId}")
+    public Response abortUpload(@PathParam("projectId") UUID projectId,
+                                @PathParam("uploadId") UUID uploadId,
+                                @Context SecurityContext ctx) {
+
+        UUID userId = UUID.fromString(ctx.getUserPrincipal().getName());
+        UploadSessions.Session session = session(projectId, uploadId, userId);
+
+        if (session == null) {
+            logger.error("Abort upload failed: upload not found - " + uploadId);
+            return Response.status(404).entity(new ErrorInfo("The upload could not be found")).build();
+        }
+
+        uploads.abort(session);
+        logger.info("User " + userId + " aborted upload " + uploadId + " in project " + projectId);
+        return Response.noContent().build();
+    }
+
+    /**
+     * The session, if it belongs to this project and user. Someone else's session is reported as
+     * missing rather than forbidden.
+     */
+    private UploadSessions.Session session(UUID projectId, UUID uploadId, UUID userId) {
+        UploadSessions.Session session = uploads.get(uploadId);
+        if (session == null || !session.getProjectId().equals(projectId) || !session.getUserId().equals(userId)) {
+            return null;
+        }
+        return session;
+    }
+
+    private UploadSessionResponse toUploadResponse(UploadSessions.Session session) {
+        return new UploadSessionResponse(
+                session.getId(),
+                session.getRelativePath(),
+                session.getSize(),
+                session.getChunkSize(),
+                session.getChunkCount(),
+                session.received()
+        );
+    }
+}
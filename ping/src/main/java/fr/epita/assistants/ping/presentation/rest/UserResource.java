@@ -1,11 +1,23 @@
 package fr.epita.assistants.ping.presentation.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.epita.assistants.ping.data.dto.*;
 import fr.epita.assistants.ping.data.model.ProjectModel;
 import fr.epita.assistants.ping.data.model.UserModel;
+import fr.epita.assistants.ping.service.EntityTags;
 import fr.epita.assistants.ping.service.JwtService;
+import fr.epita.assistants.ping.service.ListQuery;
+import fr.epita.assistants.ping.service.LoginAttemptLimiter;
+import fr.epita.assistants.ping.service.PasswordService;
+import fr.epita.assistants.ping.service.ProjectAccessCache;
+import fr.epita.assistants.ping.service.TokenRevocations;
+import fr.epita.assistants.ping.service.UserListing;
 import fr.epita.assistants.ping.utils.ErrorInfo;
+import fr.epita.assistants.ping.utils.Logger;
+import fr.epita.assistants.ping.utils.RequestTrace;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.security.Authenticated;
+import io.vertx.core.http.HttpServerRequest;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -13,15 +25,12 @@ import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -35,30 +44,73 @@ public class UserResource {
     @Inject
     JwtService jwtService;
 
-    @ConfigProperty(name = "LOG_FILE")
-    String logFile;
+    @Inject
+    Logger logger;
+
+    @Inject
+    ProjectAccessCache accessCache;
+
+    @Inject
+    TokenRevocations revocations;
+
+    @Inject
+    PasswordService passwords;
+
+    @Inject
+    LoginAttemptLimiter loginLimiter;
+
+    @Inject
+    UserListing userListing;
 
-    @ConfigProperty(name = "ERROR_LOG_FILE")
-    String errorLogFile;
+    @Inject
+    EntityTags entityTags;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @ConfigProperty(name = "ping.stream.flush-every", defaultValue = "256")
+    int flushEvery;
 
     @POST
     @Path("/login")
-    public Response login(LoginRequest request) {
+    public Response login(LoginRequest request, @Context HttpServerRequest http) {
         if (request.getLogin() == null || request.getPassword() == null) {
-            logError("Login failed: null login or password");
+            logger.error("Login failed: null login or password");
             return Response.status(400).entity(new ErrorInfo("The login or the password is null")).build();
         }
 
-        UserModel user = UserModel.find("login = ?1 and password = ?2",
-                request.getLogin(), request.getPassword()).firstResult();
+        String address = http.remoteAddress() != null ? http.remoteAddress().host() : null;
+        if (loginLimiter.isBlocked(request.getLogin(), address)) {
+            logger.error("Login failed: too many attempts for " + request.getLogin() + " from " + address);
+            return Response.status(429).header("Retry-After", loginLimiter.retryAfterSeconds())
+                    .entity(new ErrorInfo("Too many failed login attempts")).build();
+        }
 
-        if (user == null) {
-            logError("Login failed: invalid credentials for " + request.getLogin());
+        UserModel user = UserModel.find("login", request.getLogin()).firstResult();
+
+        PasswordService.Verification verification;
+        try {
+            verification = passwords.verify(request.getPassword(), user != null ? user.getPassword() : null);
+        } catch (PasswordService.BusyException e) {
+            logger.error("Login failed: " + e.getMessage());
+            return Response.status(503).header("Retry-After", 1)
+                    .entity(new ErrorInfo("The server is busy, try again")).build();
+        }
+
+        if (user == null || !verification.matches()) {
+            loginLimiter.recordFailure(request.getLogin(), address);
+            logger.error("Login failed: invalid credentials for " + request.getLogin());
             return Response.status(401).entity(new ErrorInfo("The login/password combination is invalid")).build();
         }
+        loginLimiter.recordSuccess(request.getLogin(), address);
+
+        if (verification.needsRehash()) {
+            rehash(user.getId(), request.getPassword());
+        }
 
+        RequestTrace.current().setUserId(user.getId());
         String token = jwtService.generateToken(user);
-        log("User logged in: " + user.getId());
+        logger.info("User logged in: " + user.getId());
 
         return Response.ok(new LoginResponse(token)).build();
     }
@@ -69,24 +121,32 @@ public class UserResource {
     public Response createUser(NewUserRequest request, @Context SecurityContext ctx) {
         if (request.getLogin() == null || request.getPassword() == null ||
                 !isValidLogin(request.getLogin())) {
-            logError("Create user failed: invalid login or password");
+            logger.error("Create user failed: invalid login or password");
             return Response.status(400).entity(new ErrorInfo("The login or the password is invalid")).build();
         }
 
         if (UserModel.find("login", request.getLogin()).count() > 0) {
-            logError("Create user failed: login already exists - " + request.getLogin());
+            logger.error("Create user failed: login already exists - " + request.getLogin());
             return Response.status(409).entity(new ErrorInfo("The login is already taken")).build();
         }
 
+        String hash;
+        try {
+            hash = passwords.hash(request.getPassword());
+        } catch (PasswordService.BusyException e) {
+            logger.error("Create user failed: " + e.getMessage());
+            return Response.status(503).entity(new ErrorInfo("The server is busy, try again")).build();
+        }
+
         UserModel user = new UserModel();
         user.setLogin(request.getLogin());
-        user.setPassword(request.getPassword());
+        user.setPassword(hash);
         user.setDisplayName(generateDisplayName(request.getLogin()));
         user.setAvatar("");
         user.setIsAdmin(request.getIsAdmin() != null ? request.getIsAdmin() : false);
 
         user.persist();
-        log("User created by admin " + ctx.getUserPrincipal().getName() + ": " + user.getId());
+        logger.info("User created by admin " + ctx.getUserPrincipal().getName() + ": " + user.getId());
 
         return Response.ok(toUserResponse(user)).build();
     }
@@ -94,13 +154,26 @@ public class UserResource {
     @GET
     @Path("/all")
     @RolesAllowed("admin")
-    public Response getAllUsers(@Context SecurityContext ctx) {
-        List<UserModel> users = UserModel.listAll();
-        log("Admin " + ctx.getUserPrincipal().getName() + " listed all users");
+    public Response getAllUsers(@QueryParam("limit") Integer limit,
+                                @QueryParam("after") UUID after,
+                                @QueryParam("name") String name,
+                                @QueryParam("count") @DefaultValue("false") boolean count,
+                                @Context SecurityContext ctx) {
+        ListQuery query = new ListQuery(limit, after, name);
+        if (!query.isValid()) {
+            logger.error("List users failed: invalid limit " + limit);
+            return Response.status(400).entity(new ErrorInfo("The limit must be between 1 and " + ListQuery.MAX_LIMIT)).build();
+        }
 
-        return Response.ok(users.stream()
-                .map(this::toUserResponse)
-                .collect(Collectors.toList())).build();
+        Long total = count ? userListing.count(query) : null;
+        logger.info("Admin " + ctx.getUserPrincipal().getName() + " listed all users");
+
+        if (limit == null) {
+            return Pagination.all(Response.ok(new JsonArrayOutput(mapper, flushEvery,
+                    sink -> userListing.stream(query, sink))), total).build();
+        }
+        List<UserResponse> users = userListing.find(query);
+        return Pagination.page(Response.ok(users), query, users, UserResponse::getId, total).build();
     }
 
     @GET
@@ -111,12 +184,12 @@ public class UserResource {
         UserModel user = UserModel.findById(userId);
 
         if (user == null) {
-            logError("Refresh token failed: user not found - " + userId);
+            logger.error("Refresh token failed: user not found - " + userId);
             return Response.status(404).entity(new ErrorInfo("The user could not be found")).build();
         }
 
         String token = jwtService.generateToken(user);
-        log("Token refreshed for user: " + userId);
+        logger.info("Token refreshed for user: " + userId);
 
         return Response.ok(new LoginResponse(token)).build();
     }
@@ -124,23 +197,32 @@ public class UserResource {
     @GET
     @Path("/{id}")
     @Authenticated
-    public Response getUser(@PathParam("id") UUID id, @Context SecurityContext ctx) {
+    public Response getUser(@PathParam("id") UUID id, @Context Request request, @Context SecurityContext ctx) {
         UUID requesterId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel requester = UserModel.findById(requesterId);
 
-        if (!requesterId.equals(id) && !requester.getIsAdmin()) {
-            logError("Get user failed: unauthorized access by " + requesterId + " to user " + id);
+        if (!requesterId.equals(id) && !ctx.isUserInRole("admin")) {
+            logger.error("Get user failed: unauthorized access by " + requesterId + " to user " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed to access this user")).build();
         }
 
+        String tag = entityTags.user(id);
+        if (tag == null) {
+            logger.error("Get user failed: user not found - " + id);
+            return Response.status(404).entity(new ErrorInfo("User not found")).build();
+        }
+        logger.info("User " + requesterId + " accessed user data: " + id);
+
+        Response notModified = Conditional.notModified(request, tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        // deleted between the tag query and this one
         UserModel user = UserModel.findById(id);
         if (user == null) {
-            logError("Get user failed: user not found - " + id);
+            logger.error("Get user failed: user not found - " + id);
             return Response.status(404).entity(new ErrorInfo("User not found")).build();
         }
-
-        log("User " + requesterId + " accessed user data: " + id);
-        return Response.ok(toUserResponse(user)).build();
+        return Conditional.tagged(Response.ok(toUserResponse(user)), tag).build();
     }
 
     @PUT
@@ -149,21 +231,25 @@ public class UserResource {
     @Transactional
     public Response updateUser(@PathParam("id") UUID id, UpdateUserRequest request, @Context SecurityContext ctx) {
         UUID requesterId = UUID.fromString(ctx.getUserPrincipal().getName());
-        UserModel requester = UserModel.findById(requesterId);
 
-        if (!requesterId.equals(id) && !requester.getIsAdmin()) {
-            logError("Update user failed: unauthorized access by " + requesterId + " to user " + id);
+        if (!requesterId.equals(id) && !ctx.isUserInRole("admin")) {
+            logger.error("Update user failed: unauthorized access by " + requesterId + " to user " + id);
             return Response.status(403).entity(new ErrorInfo("The user is not allowed")).build();
         }
 
         UserModel user = UserModel.findById(id);
         if (user == null) {
-            logError("Update user failed: user not found - " + id);
+            logger.error("Update user failed: user not found - " + id);
             return Response.status(404).entity(new ErrorInfo("The user could not be found")).build();
         }
 
         if (request.getPassword() != null && !request.getPassword().isBlank()) {
-            user.setPassword(request.getPassword());
+            try {
+                user.setPassword(passwords.hash(request.getPassword()));
+            } catch (PasswordService.BusyException e) {
+                logger.error("Update user failed: " + e.getMessage());
+                return Response.status(503).entity(new ErrorInfo("The server is busy, try again")).build();
+            }
         }
         if (request.getDisplayName() != null && !request.getDisplayName().isBlank()) {
             user.setDisplayName(request.getDisplayName());
@@ -173,7 +259,7 @@ public class UserResource {
         }
 
         user.persist();
-        log("User " + requesterId + " updated user: " + id);
+        logger.info("User " + requesterId + " updated user: " + id);
 
         return Response.ok(toUserResponse(user)).build();
     }
@@ -185,21 +271,42 @@ public class UserResource {
     public Response deleteUser(@PathParam("id") UUID id, @Context SecurityContext ctx) {
         UserModel user = UserModel.findById(id);
         if (user == null) {
-            logError("Delete user failed: user not found - " + id);
+            logger.error("Delete user failed: user not found - " + id);
             return Response.status(404).entity(new ErrorInfo("The user could not be found")).build();
         }
 
-        if (ProjectModel.find("owner", user).count() > 0) {
-            logError("Delete user failed: user owns projects - " + id);
+        if (ProjectModel.ownedBy(user).firstResultOptional().isPresent()) {
+            logger.error("Delete user failed: user owns projects - " + id);
             return Response.status(403).entity(new ErrorInfo("The user owns projects")).build();
         }
 
         user.delete();
-        log("Admin " + ctx.getUserPrincipal().getName() + " deleted user: " + id);
+        accessCache.invalidateUser(id);
+        revocations.revoke(id);
+        logger.info("Admin " + ctx.getUserPrincipal().getName() + " deleted user: " + id);
 
         return Response.noContent().build();
     }
 
+    /**
+     * Replaces a plaintext (or outdated) stored password once the user proved to know it.
+     * Best effort: the login succeeds even if this fails.
+     */
+    private void rehash(UUID userId, String password) {
+        try {
+            String hash = passwords.hash(password);
+            // through the entity: a bulk update would empty the whole users cache region
+            QuarkusTransaction.requiringNew().run(() -> {
+                UserModel user = UserModel.findById(userId);
+                if (user != null) {
+                    user.setPassword(hash);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Password rehash failed for " + userId + ": " + e.getMessage());
+        }
+    }
+
     private boolean isValidLogin(String login) {
         if (login == null || login.isBlank()) return false;
 
@@ -223,28 +330,4 @@ public class UserResource {
                 user.getAvatar()
         );
     }
-
-    private void log(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] %s\n", timestamp, message);
-
-        try (FileWriter writer = new FileWriter(logFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) {
-            System.out.println(logMessage);
-        }
-    }
-
-    private void logError(String message) {
-        String timestamp = new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
-        String logMessage = String.format("[%s] ERROR: %s\n", timestamp, message);
-
-        try (FileWriter writer = new FileWriter(errorLogFile, true)) {
-            writer.write(logMessage);
-        } catch (IOException e) {
-            System.err.println(logMessage);
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.utils.Logger;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Whole-file writes that readers never see half done: the content goes to a temp file in
+ * {@code PROJECT_DEFAULT_PATH/.uploads}, is synced according to {@code ping.upload.fsync}, then
+ * renamed over the target. The staging directory is outside every project (so neither listings nor
+ * git see the temp file) but on the same filesystem (so the rename is atomic), and it is emptied at
+ * startup of whatever a crash left behind, including the part files of {@link UploadSessions}.
+ *
+ * The SHA-256 of uploaded content is computed while it streams in and kept in a {@code user.}
+ * extended attribute together with the file's size, mtime and file key at write time. It is only
+ * trusted while those still match, so a file changed by anything else (git checkout, an external
+ * editor) falls back to attribute validators. Filesystems without user xattrs just never have one.
+ */
+@ApplicationScoped
+public class AtomicFiles {
+    static final String STAGING_DIR = ".uploads";
+    private static final String DIGEST_ATTRIBUTE = "ping.sha256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * How much of a write survives a power loss once it is acknowledged.
+     */
+    public enum Fsync {
+        /** leave it to the OS page cache */
+        NONE,
+        /** the file content is on disk before the rename */
+        FILE,
+        /** the file, and the rename itself (parent directory synced after it) */
+        DIRECTORY
+    }
+
+    @ConfigProperty(name = "PROJECT_DEFAULT_PATH")
+    String projectDefaultPath;
+
+    @ConfigProperty(name = "ping.upload.fsync", defaultValue = "file")
+    Fsync fsync;
+
+    @Inject
+    Logger logger;
+
+    private volatile Path staging;
+
+    /**
+     * @param sha256 lowercase hex digest of the content
+     */
+    public record Written(long size, String sha256) {}
+
+    void onStart(@Observes StartupEvent event) {
+        Path directory = staging();
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> leftovers = Files.list(directory)) {
+                for (Path leftover : leftovers.toList()) {
+                    Files.deleteIfExists(leftover);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Cannot prepare upload staging directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Directory for temp and part files, on the projects' filesystem but outside every project.
+     */
+    public Path staging() {
+        Path directory = staging;
+        if (directory == null) {
+            directory = Paths.get(projectDefaultPath).resolve(STAGING_DIR);
+            staging = directory;
+        }
+        return directory;
+    }
+
+    /**
+     * Content received into the staging directory, not yet in place. Closing it deletes the temp
+     * file if it was not committed.
+     */
+    public static final class Staged implements AutoCloseable {
+        private final Path temp;
+        private final long size;
+        private final String sha256;
+
+        private Staged(Path temp, long size, String sha256) {
+            this.temp = temp;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Streams {@code content} into a staging temp file, synced according to the policy. Nothing in
+     * any project is touched, so callers do this before taking a project IO slot.
+     */
+    public Staged stage(InputStream content) throws IOException {
+        Path temp = staging().resolve(UUID.randomUUID() + ".tmp");
+        MessageDigest sha256 = sha256();
+        long size = 0;
+        boolean staged = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    sha256.update(buffer, 0, read);
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    size += read;
+                }
+                if (fsync != Fsync.NONE) {
+                    channel.force(true);
+                }
+            }
+            String digest = HexFormat.of().formatHex(sha256.digest());
+            remember(temp, digest);
+            staged = true;
+            return new Staged(temp, size, digest);
+        } finally {
+            if (!staged) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Renames staged content over {@code target}, replacing it atomically.
+     */
+    public Written commit(Staged staged, Path target) throws IOException {
+        rename(staged.temp, target);
+        return new Written(staged.size, staged.sha256);
+    }
+
+    /**
+     * Hashes a file assembled in the {@link #staging} directory some other way than {@link #stage}
+     * (chunks written out of order) and records its digest, as {@link #stage} does while streaming.
+     */
+    public Written hash(Path file) throws IOException {
+        MessageDigest sha256 = sha256();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int read;
+            while ((read = channel.read(buffer)) != -1) {
+                sha256.update(buffer.array(), 0, read);
+                size += read;
+                buffer.clear();
+            }
+        }
+        String digest = HexFormat.of().formatHex(sha256.digest());
+        remember(file, digest);
+        return new Written(size, digest);
+    }
+
+    /**
+     * Renames a complete {@code source} from the {@link #staging} directory over {@code target},
+     * syncing according to the policy.
+     */
+    public void publish(Path source, Path target) throws IOException {
+        if (fsync != Fsync.NONE) {
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        rename(source, target);
+    }
+
+    private void rename(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        if (fsync == Fsync.DIRECTORY) {
+            try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+                directory.force(true);
+            } catch (IOException e) {
+                logger.error("Could not sync directory " + target.getParent() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the SHA-256 recorded when the file was uploaded, null if there is none or the file
+     *         changed since
+     */
+    public String digest(Path file, BasicFileAttributes attributes) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return null;
+        }
+        try {
+            ByteBuffer value = ByteBuffer.allocate(view.size(DIGEST_ATTRIBUTE));
+            view.read(DIGEST_ATTRIBUTE, value);
+            String[] recorded = new String(value.array(), 0, value.position(), StandardCharsets.US_ASCII).split(" ", 2);
+            return recorded.length == 2 && recorded[1].equals(stamp(attributes)) ? recorded[0] : null;
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private void remember(Path file, String digest) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        try {
+            // xattrs change the ctime only, the stamp stays valid through the rename
+            String stamp = stamp(Files.readAttributes(file, BasicFileAttributes.class));
+            view.write(DIGEST_ATTRIBUTE, StandardCharsets.US_ASCII.encode(digest + " " + stamp));
+        } catch (IOException | UnsupportedOperationException e) {
+            // no user xattrs here, the file is validated from its attributes
+        }
+    }
+
+    private static String stamp(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return attributes.size() + ":" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                + ":" + (key != null ? key.hashCode() : 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.domain.audit.AuditRecord;
+import fr.epita.assistants.ping.domain.audit.AuditSegment;
+import fr.epita.assistants.ping.utils.Logger;
+import fr.epita.assistants.ping.utils.RingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Structured audit trail.
+ * Records are queued in a ring buffer and appended by a single writer thread into
+ * size-bounded segment files (see {@link AuditSegment}); queries only open the segments whose
+ * index overlaps the requested project and time range.
+ */
+@ApplicationScoped
+public class AuditLog {
+    private static final int MAX_BATCH = 512;
+
+    @ConfigProperty(name = "ping.audit.dir", defaultValue = "/tmp/ping/audit")
+    String auditDir;
+
+    @ConfigProperty(name = "ping.audit.segment-size", defaultValue = "16777216")
+    long segmentSize;
+
+    @ConfigProperty(name = "ping.audit.max-segments", defaultValue = "64")
+    int maxSegments;
+
+    @ConfigProperty(name = "ping.audit.buffer-size", defaultValue = "8192")
+    int bufferSize;
+
+    @Inject
+    Logger logger;
+
+    private RingBuffer<AuditRecord> buffer;
+    private final CopyOnWriteArrayList<AuditSegment> segments = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicBoolean writerParked = new AtomicBoolean();
+    private volatile boolean running;
+    private Thread writer;
+    private AuditSegment active;
+
+    @PostConstruct
+    void start() {
+        buffer = new RingBuffer<>(bufferSize);
+        Path dir = Paths.get(auditDir);
+        long nextSequence = 0;
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.filter(AuditSegment::isSegment).sorted().toList()) {
+                    AuditSegment segment = AuditSegment.load(file);
+                    segments.add(segment);
+                    nextSequence = Math.max(nextSequence, segment.sequence() + 1);
+                }
+            }
+            active = AuditSegment.create(dir, nextSequence);
+            segments.add(active);
+        } catch (IOException e) {
+            logger.error("Audit log disabled, cannot open " + auditDir + ": " + e.getMessage());
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writerLoop, "ping-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void record(AuditRecord record) {
+        if (!running || !buffer.offer(record)) {
+            dropped.increment();
+            return;
+        }
+        if (writerParked.get() && writerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Keeps the {@code limit} earliest matches in a bounded max-heap. Once it is full, only records
+     * older than its newest can get in, so segments are tested against that narrower range and the
+     * later ones are skipped from their index without being read.
+     *
+     * @param projectId null for every project
+     * @return at most {@code limit} records in [from, to] ordered by timestamp
+     */
+    public List<AuditRecord> query(UUID projectId, long from, long to, int limit) throws IOException {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Comparator<AuditRecord> byTime = Comparator.comparingLong(AuditRecord::timestamp);
+        PriorityQueue<AuditRecord> earliest = new PriorityQueue<>(Math.min(limit, 1024), byTime.reversed());
+        for (AuditSegment segment : segments) {
+            long until = earliest.size() < limit ? to : earliest.peek().timestamp() - 1;
+            if (until < from || !segment.mayContain(projectId, from, until)) {
+                continue;
+            }
+            segment.scan(projectId, from, until, record -> {
+                if (earliest.size() < limit) {
+                    earliest.add(record);
+                } else if (record.timestamp() < earliest.peek().timestamp()) {
+                    earliest.poll();
+                    earliest.add(record);
+                }
+            });
+        }
+        List<AuditRecord> result = new ArrayList<>(earliest);
+        result.sort(byTime);
+        return result;
+    }
+
+    private void writerLoop() {
+        ByteBuffer batch = ByteBuffer.allocateDirect(1 << 20);
+        List<AuditRecord> pending = new ArrayList<>(MAX_BATCH);
+
+        while (running || !buffer.isEmpty()) {
+            AuditRecord record;
+            while (pending.size() < MAX_BATCH && (record = buffer.poll()) != null) {
+                if (record.encodedSize() > batch.remaining()) {
+                    flush(batch, pending);
+                }
+                record.encode(batch);
+                pending.add(record);
+            }
+
+            if (pending.isEmpty()) {
+                if (running) {
+                    writerParked.set(true);
+                    if (buffer.isEmpty()) {
+                        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                    }
+                    writerParked.set(false);
+                }
+                continue;
+            }
+            flush(batch, pending);
+        }
+
+        try {
+            active.seal();
+        } catch (IOException e) {
+            logger.error("Audit log: failed to seal segment: " + e.getMessage());
+        }
+        long lost = dropped.sum();
+        if (lost > 0) {
+            logger.error("Audit log: " + lost + " records dropped (buffer full)");
+        }
+    }
+
+    private void flush(ByteBuffer batch, List<AuditRecord> pending) {
+        batch.flip();
+        try {
+            active.append(batch, pending);
+            if (active.size() >= segmentSize) {
+                roll();
+            }
+        } catch (IOException e) {
+            logger.error("Audit log: failed to append " + pending.size() + " records: " + e.getMessage());
+        }
+        batch.clear();
+        pending.clear();
+    }
+
+    private void roll() throws IOException {
+        active.seal();
+        active = AuditSegment.create(Paths.get(auditDir), active.sequence() + 1);
+        segments.add(active);
+        while (maxSegments > 0 && segments.size() > maxSegments) {
+            AuditSegment oldest = segments.remove(0);
+            oldest.delete();
+        }
+    }
+}
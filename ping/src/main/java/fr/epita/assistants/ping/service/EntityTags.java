@@ -0,0 +1,62 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.data.model.ModelChanges;
+import io.quarkus.hibernate.orm.panache.Panache;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Strong entity tags of the project and user representations, read from the version columns with a
+ * single scalar query so an unchanged resource is answered 304 without loading the entity graph.
+ *
+ * A project response shows its owner and members, so its tag covers the project version, the
+ * membership version and the versions of the users shown (versions only grow, so their sum changes
+ * whenever one of them does while the membership stays the same).
+ * Listings use a change counter instead, see {@link #listing}.
+ */
+@ApplicationScoped
+public class EntityTags {
+    private static final String PROJECT = """
+            select p.version, p.membersVersion, o.version,
+                   (select coalesce(sum(m.version), 0L) from p.members m)
+            from ProjectModel p join p.owner o
+            where p.id = :id""";
+    private static final String USER = "select u.version from UserModel u where u.id = :id";
+    private static final String BOOT = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * @return tag of the project, null if it does not exist
+     */
+    public String project(UUID projectId) {
+        List<Object[]> rows = Panache.getEntityManager()
+                .createQuery(PROJECT, Object[].class)
+                .setParameter("id", projectId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return "p" + row[0] + "." + row[1] + "." + row[2] + "." + row[3];
+    }
+
+    /**
+     * Tag of any project listing: it changes with every project or user write, so a poll of an
+     * unchanged list is answered without a query. The boot time keeps tags from a previous run apart.
+     */
+    public String listing() {
+        return "l" + BOOT + "." + ModelChanges.generation();
+    }
+
+    /**
+     * @return tag of the user, null if it does not exist
+     */
+    public String user(UUID userId) {
+        List<Long> rows = Panache.getEntityManager()
+                .createQuery(USER, Long.class)
+                .setParameter("id", userId)
+                .getResultList();
+        return rows.isEmpty() ? null : "u" + rows.get(0);
+    }
+}
@@ -2,7 +2,9 @@ package fr.epita.assistants.ping.service;
 
 import fr.epita.assistants.ping.data.dto.ExecFeatureRequest;
 import fr.epita.assistants.ping.domain.executor.FeatureExecutor;
+import fr.epita.assistants.ping.utils.RequestTrace;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 
@@ -16,6 +18,9 @@ import java.util.stream.Stream;
 @ApplicationScoped
 public class GitExecutor implements FeatureExecutor {
 
+    @Inject
+    MetricsRegistry metrics;
+
     @Override
     public String name() {
         return "git";
@@ -24,8 +29,9 @@ public class GitExecutor implements FeatureExecutor {
     @Override
     public void execute(File projectRoot, Object request) {
         ExecFeatureRequest execRequest = (ExecFeatureRequest) request;
+        long start = System.nanoTime();
 
-        try {
+        try (RequestTrace.Span span = RequestTrace.phase(RequestTrace.Phase.GIT)) {
             switch (execRequest.getCommand()) {
                 case "init":
                     executeInit(projectRoot);
@@ -41,6 +47,10 @@ public class GitExecutor implements FeatureExecutor {
             }
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            String command = execRequest.getCommand();
+            boolean known = "init".equals(command) || "add".equals(command) || "commit".equals(command);
+            metrics.recordGitCommand(known ? command : "unknown", (System.nanoTime() - start) / 1_000);
         }
     }
 
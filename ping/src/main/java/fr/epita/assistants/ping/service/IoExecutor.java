@@ -0,0 +1,272 @@
+package fr.epita.assistants.ping.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import fr.epita.assistants.ping.utils.ErrorInfo;
+import fr.epita.assistants.ping.utils.RequestTrace;
+import io.quarkus.arc.Arc;
+import io.quarkus.vertx.http.runtime.CurrentVertxRequest;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the blocking filesystem and git part of a request on a virtual thread, so slow disks or a
+ * large commit park cheap virtual threads instead of exhausting the worker pool.
+ *
+ * Work is bounded twice: at most {@code ping.io.per-project} tasks per project, then at most
+ * {@code ping.io.max-concurrent} overall, so one hot project cannot take every IO slot. A task that
+ * waits longer than {@code ping.io.acquire-timeout-ms} for its slots is answered 503 with Retry-After.
+ * When the response body is a {@link StreamingOutput} (downloads, listings), the slots go with it and
+ * are released once it is written, since that is where the IO happens. The body is not always written
+ * (a HEAD runs the GET method without sending it, the client can hang up first), so the slots are also
+ * released when the HTTP exchange ends, whichever way it ends.
+ *
+ * Reading a request body is paced by the client, not the disk, so {@link #receive} does it outside
+ * the project slots, bounded only by {@code ping.io.max-receiving}: slow uploads cannot starve the
+ * other file operations of their project.
+ *
+ * The request's {@link RequestTrace} follows the task onto the virtual thread.
+ */
+@ApplicationScoped
+public class IoExecutor {
+    // HTTP exchange of the task running on this IO thread, to release streamed slots when it ends
+    private static final ThreadLocal<RoutingContext> EXCHANGE = new ThreadLocal<>();
+
+    @ConfigProperty(name = "ping.io.max-concurrent", defaultValue = "64")
+    int maxConcurrent;
+
+    @ConfigProperty(name = "ping.io.per-project", defaultValue = "4")
+    int perProject;
+
+    @ConfigProperty(name = "ping.io.max-receiving", defaultValue = "256")
+    int maxReceiving;
+
+    @ConfigProperty(name = "ping.io.acquire-timeout-ms", defaultValue = "5000")
+    long acquireTimeoutMs;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @Inject
+    CurrentVertxRequest currentRequest;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private ExecutorService executor;
+    private Semaphore global;
+    private Semaphore receiving;
+    // weak values: a project's semaphore lives as long as a task holds or waits on it
+    private LoadingCache<UUID, Semaphore> projects;
+
+    @PostConstruct
+    void start() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ping-io-", 0).factory());
+        global = new Semaphore(maxConcurrent, true);
+        receiving = new Semaphore(maxReceiving, true);
+        projects = Caffeine.newBuilder()
+                .weakValues()
+                .build(id -> new Semaphore(perProject, true));
+        if (metrics != null) {
+            metrics.registerGauge("ping_io_active", () -> maxConcurrent - global.availablePermits());
+            metrics.registerGauge("ping_io_receiving", () -> maxReceiving - receiving.availablePermits());
+            metrics.registerGauge("ping_io_waiting", waiting::get);
+            metrics.registerCounter("ping_io_rejected_total", rejected::sum);
+            metrics.registerGauge("ping_io_projects", () -> projects.estimatedSize());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Response decided before any IO (validation, access), for methods returning {@link #submit}.
+     */
+    public static CompletionStage<Response> done(Response response) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    /**
+     * @return completes with the response of {@code work}, or 503 if no slot freed up in time
+     */
+    public CompletionStage<Response> submit(UUID projectId, Callable<Response> work) {
+        return async(() -> call(projectId, work));
+    }
+
+    /**
+     * Runs {@code work}, which reads the request body (into a staging file), without project slots.
+     * Anything it then does in the project tree goes through {@link #call}.
+     *
+     * @return completes with the response of {@code work}, or 503 if too many bodies are being received
+     */
+    public CompletionStage<Response> receive(Callable<Response> work) {
+        return async(() -> {
+            boolean slot = false;
+            try {
+                slot = receiving.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!slot) {
+                rejected.increment();
+                return busy();
+            }
+            try {
+                return work.call();
+            } finally {
+                receiving.release();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code work} with the project and global slots on the current thread, for a task already
+     * on an IO thread (within {@link #receive}).
+     *
+     * @return the response of {@code work}, or 503 if no slot freed up in time
+     */
+    public Response call(UUID projectId, Callable<Response> work) {
+        Semaphore project = projects.get(projectId);
+        long queued = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean projectSlot = false;
+        boolean globalSlot = false;
+        try {
+            long deadline = queued + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+            projectSlot = project.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            globalSlot = projectSlot && global.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!globalSlot) {
+            if (projectSlot) {
+                project.release();
+            }
+            rejected.increment();
+            return busy();
+        }
+        if (metrics != null) {
+            metrics.recordIoWait((System.nanoTime() - queued) / 1_000);
+        }
+
+        Slots slots = new Slots(project, global);
+        boolean handedOff = false;
+        try {
+            Response response = work.call();
+            RoutingContext exchange = EXCHANGE.get();
+            if (response != null && response.getEntity() instanceof StreamingOutput body && exchange != null) {
+                // called once the response is sent, failed or the connection closed
+                exchange.addEndHandler(ended -> slots.run());
+                if (exchange.response().closed()) {
+                    // closed before the handler was added, it will not be called
+                    slots.run();
+                }
+                response = Response.fromResponse(response).entity(new SlotOutput(body, slots)).build();
+                handedOff = true;
+            }
+            return response;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (!handedOff) {
+                slots.run();
+            }
+        }
+    }
+
+    private CompletionStage<Response> async(Callable<Response> task) {
+        RequestTrace trace = RequestTrace.current();
+        RoutingContext exchange = Arc.container().requestContext().isActive() ? currentRequest.getCurrent() : null;
+        // the request continues on the virtual thread, the worker is free to serve another one
+        RequestTrace.end();
+        return CompletableFuture.supplyAsync(() -> {
+            RequestTrace.attach(trace);
+            EXCHANGE.set(exchange);
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                EXCHANGE.remove();
+                RequestTrace.end();
+            }
+        }, executor);
+    }
+
+    private static Response busy() {
+        return Response.status(503).header("Retry-After", 1)
+                .entity(new ErrorInfo("Too many file operations in progress, retry later")).build();
+    }
+
+    /**
+     * The project and global slots of one task, released at most once.
+     */
+    private static final class Slots implements Runnable {
+        private final Semaphore project;
+        private final Semaphore global;
+        private final AtomicBoolean held = new AtomicBoolean(true);
+
+        Slots(Semaphore project, Semaphore global) {
+            this.project = project;
+            this.global = global;
+        }
+
+        @Override
+        public void run() {
+            if (held.compareAndSet(true, false)) {
+                global.release();
+                project.release();
+            }
+        }
+    }
+
+    /**
+     * Streamed body holding its task's slots until it is written; the end of the exchange releases
+     * them if it never is.
+     */
+    private static final class SlotOutput implements StreamingOutput {
+        private final StreamingOutput body;
+        private final Slots slots;
+
+        SlotOutput(StreamingOutput body, Slots slots) {
+            this.body = body;
+            this.slots = slots;
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            try {
+                body.write(output);
+            } finally {
+                slots.run();
+            }
+        }
+    }
+}
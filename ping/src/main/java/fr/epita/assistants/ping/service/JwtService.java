@@ -4,17 +4,18 @@ import fr.epita.assistants.ping.data.model.UserModel;
 import io.smallrye.jwt.build.Jwt;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.HashSet;
 
 @ApplicationScoped
 public class JwtService {
+    static final Duration TOKEN_LIFETIME = Duration.ofHours(24);
 
     public String generateToken(UserModel user) {
         Instant now = Instant.now();
-        Instant exp = now.plus(24, ChronoUnit.HOURS);
+        Instant exp = now.plus(TOKEN_LIFETIME);
 
         String role = user.getIsAdmin() ? "admin" : "user";
 
@@ -22,6 +23,7 @@ public class JwtService {
                 .subject(user.getId().toString())
                 .groups(new HashSet<>(Arrays.asList(role)))
                 .issuedAt(now)
+                .claim(TokenRevocations.ISSUE_CLAIM, TokenRevocations.stamp())
                 .expiresAt(exp)
                 .sign();
     }
@@ -0,0 +1,34 @@
+package fr.epita.assistants.ping.service;
+
+import java.util.UUID;
+
+/**
+ * Keyset page request shared by the listing endpoints. Rows are ordered by id; a page holds the
+ * {@code limit} first rows with an id greater than {@code after}.
+ *
+ * @param limit page size, null for everything (legacy unpaginated behaviour)
+ * @param after id of the last row of the previous page, null for the first page
+ * @param name  case-insensitive substring filter on the name, null for none
+ */
+public record ListQuery(Integer limit, UUID after, String name) {
+    public static final int MAX_LIMIT = 1000;
+
+    public boolean isValid() {
+        return limit == null || (limit > 0 && limit <= MAX_LIMIT);
+    }
+
+    public boolean hasName() {
+        return name != null && !name.isBlank();
+    }
+
+    /**
+     * @return the name filter as a LIKE pattern (escape character '\')
+     */
+    public String namePattern() {
+        String escaped = name.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
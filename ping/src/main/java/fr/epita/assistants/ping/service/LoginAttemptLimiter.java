@@ -0,0 +1,87 @@
+package fr.epita.assistants.ping.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Failed login counter per login name and client address. Once a pair reached the limit within the
+ * window, its attempts are refused before any password hashing, so a burst of bad logins against one
+ * account cannot fill the {@link PasswordService} pool for everyone else. Keying on the address too
+ * means someone guessing from elsewhere does not lock the owner out of their account.
+ *
+ * An address cycling through login names (unknown ones cost a dummy hash too) never reaches the
+ * limit of any pair, so each address also has a budget of failures across all logins,
+ * {@code ping.login.max-failures-per-address}. A successful login does not reset it.
+ */
+@ApplicationScoped
+public class LoginAttemptLimiter {
+
+    @ConfigProperty(name = "ping.login.max-failures", defaultValue = "5")
+    int maxFailures;
+
+    @ConfigProperty(name = "ping.login.failure-window-seconds", defaultValue = "60")
+    long windowSeconds;
+
+    @ConfigProperty(name = "ping.login.max-failures-per-address", defaultValue = "30")
+    int maxAddressFailures;
+
+    @ConfigProperty(name = "ping.login.max-tracked", defaultValue = "100000")
+    long maxTracked;
+
+    private Cache<String, AtomicInteger> failures;
+    private Cache<String, AtomicInteger> addressFailures;
+
+    @PostConstruct
+    void init() {
+        failures = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .build();
+        addressFailures = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .build();
+    }
+
+    /**
+     * @param address client address, null if unknown
+     */
+    public boolean isBlocked(String login, String address) {
+        AtomicInteger count = failures.getIfPresent(key(login, address));
+        if (count != null && count.get() >= maxFailures) {
+            return true;
+        }
+        AtomicInteger fromAddress = addressFailures.getIfPresent(address(address));
+        return fromAddress != null && fromAddress.get() >= maxAddressFailures;
+    }
+
+    public void recordFailure(String login, String address) {
+        failures.get(key(login, address), k -> new AtomicInteger()).incrementAndGet();
+        addressFailures.get(address(address), k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public void recordSuccess(String login, String address) {
+        failures.invalidate(key(login, address));
+    }
+
+    private static String key(String login, String address) {
+        return login + "@" + address(address);
+    }
+
+    private static String address(String address) {
+        return address != null ? address : "";
+    }
+
+    /**
+     * @return seconds a blocked login should wait, for the Retry-After header
+     */
+    public long retryAfterSeconds() {
+        return windowSeconds;
+    }
+}
@@ -0,0 +1,187 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.utils.LatencyHistogram;
+import fr.epita.assistants.ping.utils.Logger;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process metrics, rendered in the Prometheus text format by the MetricsResource.
+ * Histograms and counters are created on first use; once they exist, recording does not allocate.
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+    private static final double[] BUCKETS_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> gitCommands = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> counters = new ConcurrentHashMap<>();
+    private final LatencyHistogram passwordQueue = new LatencyHistogram();
+    private final LatencyHistogram passwordHash = new LatencyHistogram();
+    private final LatencyHistogram ioWait = new LatencyHistogram();
+    private final LongAdder fsBytesRead = new LongAdder();
+    private final LongAdder fsBytesWritten = new LongAdder();
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    AuditLog auditLog;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    /**
+     * Latency histograms of one resource method, one per response status.
+     */
+    private static final class Endpoint {
+        final String label;
+        final AtomicReferenceArray<LatencyHistogram> byStatus = new AtomicReferenceArray<>(600);
+
+        Endpoint(Method method) {
+            this.label = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+
+        LatencyHistogram histogram(int status) {
+            int idx = status >= 0 && status < 600 ? status : 0;
+            LatencyHistogram histogram = byStatus.get(idx);
+            if (histogram == null) {
+                byStatus.compareAndSet(idx, null, new LatencyHistogram());
+                histogram = byStatus.get(idx);
+            }
+            return histogram;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        registerGauge("ping_log_dropped_lines", logger::droppedCount);
+        registerGauge("ping_audit_dropped_records", auditLog::droppedCount);
+
+        // JDBC statements and what the second-level and query caches saved (needs hibernate statistics)
+        Statistics db = sessionFactory.getStatistics();
+        registerCounter("ping_db_statements_total", db::getPrepareStatementCount);
+        registerCounter("ping_db_entity_loads_total", db::getEntityLoadCount);
+        registerCounter("ping_l2_cache_hits_total", db::getSecondLevelCacheHitCount);
+        registerCounter("ping_l2_cache_misses_total", db::getSecondLevelCacheMissCount);
+        registerCounter("ping_query_cache_hits_total", db::getQueryCacheHitCount);
+        registerCounter("ping_query_cache_misses_total", db::getQueryCacheMissCount);
+    }
+
+    public void recordRequest(Method method, int status, long micros) {
+        Endpoint endpoint = endpoints.get(method);
+        if (endpoint == null) {
+            endpoint = endpoints.computeIfAbsent(method, Endpoint::new);
+        }
+        endpoint.histogram(status).record(micros);
+    }
+
+    public void recordGitCommand(String command, long micros) {
+        LatencyHistogram histogram = gitCommands.get(command);
+        if (histogram == null) {
+            histogram = gitCommands.computeIfAbsent(command, c -> new LatencyHistogram());
+        }
+        histogram.record(micros);
+    }
+
+    /**
+     * One password hash or verification: time waiting for a hashing thread, then time hashing.
+     */
+    public void recordPasswordHash(long queueMicros, long hashMicros) {
+        passwordQueue.record(queueMicros);
+        passwordHash.record(hashMicros);
+    }
+
+    /**
+     * Time a filesystem or git task waited for its project and global slots, see IoExecutor.
+     */
+    public void recordIoWait(long micros) {
+        ioWait.record(micros);
+    }
+
+    public void addBytesRead(long bytes) {
+        fsBytesRead.add(bytes);
+    }
+
+    public void addBytesWritten(long bytes) {
+        fsBytesWritten.add(bytes);
+    }
+
+    /**
+     * Registers a value sampled at scrape time, {@code name} must be a valid Prometheus metric name.
+     */
+    public void registerGauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Registers a running total sampled at scrape time and exported as a counter, so {@code rate()}
+     * applies; {@code name} must end in {@code _total}.
+     */
+    public void registerCounter(String name, LongSupplier supplier) {
+        counters.put(name, supplier);
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8 * 1024);
+
+        out.append("# TYPE ping_http_server_requests_seconds histogram\n");
+        endpoints.values().forEach(endpoint -> {
+            for (int status = 0; status < 600; status++) {
+                LatencyHistogram histogram = endpoint.byStatus.get(status);
+                if (histogram != null) {
+                    writeHistogram(out, "ping_http_server_requests_seconds",
+                            "endpoint=\"" + endpoint.label + "\",status=\"" + status + "\"", histogram);
+                }
+            }
+        });
+
+        out.append("# TYPE ping_git_command_seconds histogram\n");
+        gitCommands.forEach((command, histogram) ->
+                writeHistogram(out, "ping_git_command_seconds", "command=\"" + command + "\"", histogram));
+
+        out.append("# TYPE ping_password_queue_seconds histogram\n");
+        writeHistogram(out, "ping_password_queue_seconds", "", passwordQueue);
+        out.append("# TYPE ping_password_hash_seconds histogram\n");
+        writeHistogram(out, "ping_password_hash_seconds", "", passwordHash);
+
+        out.append("# TYPE ping_io_wait_seconds histogram\n");
+        writeHistogram(out, "ping_io_wait_seconds", "", ioWait);
+
+        out.append("# TYPE ping_fs_read_bytes_total counter\n")
+                .append("ping_fs_read_bytes_total ").append(fsBytesRead.sum()).append('\n');
+        out.append("# TYPE ping_fs_written_bytes_total counter\n")
+                .append("ping_fs_written_bytes_total ").append(fsBytesWritten.sum()).append('\n');
+
+        counters.forEach((name, supplier) -> out.append("# TYPE ").append(name).append(" counter\n")
+                .append(name).append(' ').append(supplier.getAsLong()).append('\n'));
+        gauges.forEach((name, supplier) -> out.append("# TYPE ").append(name).append(" gauge\n")
+                .append(name).append(' ').append(supplier.getAsLong()).append('\n'));
+        return out.toString();
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String bucketLabels = labels.isEmpty() ? "" : labels + ",";
+        for (double bound : BUCKETS_SECONDS) {
+            out.append(name).append("_bucket{").append(bucketLabels).append("le=\"").append(bound).append("\"} ")
+                    .append(histogram.countAtOrBelow((long) (bound * 1_000_000))).append('\n');
+        }
+        long count = histogram.count();
+        out.append(name).append("_bucket{").append(bucketLabels).append("le=\"+Inf\"} ").append(count).append('\n');
+        out.append(name).append("_sum{").append(labels).append("} ").append(histogram.sumMicros() / 1_000_000.0).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+    }
+}
@@ -0,0 +1,192 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.utils.Logger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PBKDF2 password hashes, stored as {@code pbkdf2$<iterations>$<salt>$<hash>} (base64).
+ *
+ * Hashing is deliberately expensive, so it runs on a small dedicated pool with a bounded queue:
+ * a login storm queues there (and is rejected with {@link BusyException} once the queue is full)
+ * instead of eating every request worker. Queue time and hashing time are exported as metrics.
+ * Passwords stored before hashing was introduced are still accepted, see {@link Verification#needsRehash()}.
+ */
+@ApplicationScoped
+public class PasswordService {
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    @ConfigProperty(name = "ping.password.iterations", defaultValue = "600000")
+    int iterations;
+
+    @ConfigProperty(name = "ping.password.pool-size", defaultValue = "2")
+    int poolSize;
+
+    @ConfigProperty(name = "ping.password.queue-size", defaultValue = "64")
+    int queueSize;
+
+    @ConfigProperty(name = "ping.password.timeout-ms", defaultValue = "10000")
+    long timeoutMs;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @Inject
+    Logger logger;
+
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder rejected = new LongAdder();
+    private ThreadPoolExecutor pool;
+    private String dummyHash;
+
+    /**
+     * @param matches     whether the password is right
+     * @param needsRehash the stored value is not a hash with the current settings and should be replaced
+     */
+    public record Verification(boolean matches, boolean needsRehash) {}
+
+    /**
+     * The hashing pool is saturated, the caller should answer 503.
+     */
+    public static class BusyException extends Exception {
+        public BusyException(String message) {
+            super(message);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threads = new AtomicInteger();
+        pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+            Thread thread = new Thread(task, "ping-password-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dummyHash = hashNow("not a password");
+        if (metrics != null) {
+            metrics.registerGauge("ping_password_queue_depth", () -> pool.getQueue().size());
+            metrics.registerCounter("ping_password_rejected_total", rejected::sum);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    public String hash(String password) throws BusyException {
+        return submit(() -> hashNow(password));
+    }
+
+    /**
+     * @param stored the user's stored password, null to burn the same time as a real check (unknown login)
+     */
+    public Verification verify(String password, String stored) throws BusyException {
+        return submit(() -> verifyNow(password, stored != null ? stored : dummyHash, stored != null));
+    }
+
+    private <T> T submit(Callable<T> work) throws BusyException {
+        long queued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                long started = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    if (metrics != null) {
+                        metrics.recordPasswordHash((started - queued) / 1_000, (System.nanoTime() - started) / 1_000);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException("Password verification queue is full");
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusyException("Password verification timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusyException("Interrupted while verifying password");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    String hashNow(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    Verification verifyNow(String password, String stored, boolean real) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            // legacy plaintext value
+            boolean matches = MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8),
+                    password.getBytes(StandardCharsets.UTF_8));
+            return new Verification(real && matches, real && matches);
+        }
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            Base64.Decoder base64 = Base64.getDecoder();
+            salt = base64.decode(parts[2]);
+            expected = base64.decode(parts[3]);
+            if (storedIterations <= 0 || salt.length == 0) {
+                throw new IllegalArgumentException("iterations " + storedIterations + ", salt " + salt.length + " bytes");
+            }
+        } catch (IllegalArgumentException e) {
+            // a corrupt row must not turn the login into a 500, nor answer faster than a wrong password
+            logger.error("Stored password hash is malformed (" + e.getMessage() + "), treated as a mismatch");
+            verifyNow(password, dummyHash, false);
+            return new Verification(false, false);
+        }
+        byte[] actual = pbkdf2(password, salt, storedIterations);
+        boolean matches = real && MessageDigest.isEqual(expected, actual);
+        return new Verification(matches, matches && storedIterations != iterations);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
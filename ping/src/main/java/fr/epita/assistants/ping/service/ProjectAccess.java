@@ -0,0 +1,12 @@
+package fr.epita.assistants.ping.service;
+
+import java.util.UUID;
+
+/**
+ * What a request needs to know about a project before touching it, as seen by one user.
+ *
+ * @param path    root directory of the project
+ * @param allowed whether the user is the owner, a member or an admin
+ */
+public record ProjectAccess(UUID projectId, String path, UUID ownerId, boolean allowed) {
+}
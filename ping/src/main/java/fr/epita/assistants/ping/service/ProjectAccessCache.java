@@ -0,0 +1,101 @@
+package fr.epita.assistants.ping.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Access decisions ({@link ProjectAccess}) shared by every project, file and folder resource,
+ * so the database is only asked on a miss.
+ *
+ * Entries are dropped by the operations that change a decision (membership, owner, project or user
+ * deletion). Inside a transaction they are dropped right away and again once it completes, so a
+ * request racing the commit cannot leave the old decision behind; the TTL bounds anything else.
+ */
+@ApplicationScoped
+public class ProjectAccessCache {
+
+    @ConfigProperty(name = "ping.access-cache.max-size", defaultValue = "10000")
+    long maxSize;
+
+    @ConfigProperty(name = "ping.access-cache.ttl-seconds", defaultValue = "300")
+    long ttlSeconds;
+
+    @Inject
+    TransactionSynchronizationRegistry transactions;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    private Cache<Key, ProjectAccess> decisions;
+
+    private record Key(UUID projectId, UUID userId) {}
+
+    @PostConstruct
+    void init() {
+        decisions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        if (metrics != null) {
+            metrics.registerCounter("ping_access_cache_hits_total", () -> decisions.stats().hitCount());
+            metrics.registerCounter("ping_access_cache_misses_total", () -> decisions.stats().missCount());
+            metrics.registerGauge("ping_access_cache_size", decisions::estimatedSize);
+        }
+    }
+
+    /**
+     * @return the cached access, or the one computed by {@code loader} (not cached when null)
+     */
+    public ProjectAccess get(UUID projectId, UUID userId, BiFunction<UUID, UUID, ProjectAccess> loader) {
+        return decisions.get(new Key(projectId, userId), key -> loader.apply(key.projectId(), key.userId()));
+    }
+
+    /**
+     * A membership of {@code userId} in {@code projectId} changed (added, removed, became owner...).
+     */
+    public void invalidate(UUID projectId, UUID userId) {
+        Key key = new Key(projectId, userId);
+        invalidateNowAndAfterCommit(() -> decisions.invalidate(key));
+    }
+
+    public void invalidateProject(UUID projectId) {
+        invalidateIf(key -> key.projectId().equals(projectId));
+    }
+
+    public void invalidateUser(UUID userId) {
+        invalidateIf(key -> key.userId().equals(userId));
+    }
+
+    private void invalidateIf(Predicate<Key> predicate) {
+        invalidateNowAndAfterCommit(() -> decisions.asMap().keySet().removeIf(predicate));
+    }
+
+    private void invalidateNowAndAfterCommit(Runnable invalidation) {
+        invalidation.run();
+        if (transactions != null && transactions.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactions.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+}
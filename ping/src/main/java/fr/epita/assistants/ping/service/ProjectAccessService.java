@@ -0,0 +1,57 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.utils.RequestTrace;
+import io.quarkus.hibernate.orm.panache.Panache;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Answers "may user U touch project P, and where is it" with one projection query
+ * (no entity hydration, no member collection), cached by {@link ProjectAccessCache}.
+ * The admin bypass comes from the token role, the query only covers ownership and membership.
+ */
+@ApplicationScoped
+public class ProjectAccessService {
+    private static final String ACCESS_QUERY = """
+            select p.path, p.owner.id,
+                   case when p.owner.id = :userId
+                          or exists (select 1 from ProjectModel q join q.members m
+                                     where q.id = p.id and m.id = :userId)
+                        then true else false end
+            from ProjectModel p
+            where p.id = :projectId""";
+
+    @Inject
+    ProjectAccessCache cache;
+
+    /**
+     * @param admin whether the caller holds the admin role
+     * @return the access of {@code userId} to {@code projectId}, null if the project does not exist
+     */
+    public ProjectAccess resolve(UUID projectId, UUID userId, boolean admin) {
+        ProjectAccess access;
+        try (RequestTrace.Span members = RequestTrace.phase(RequestTrace.Phase.MEMBERS)) {
+            access = cache.get(projectId, userId, this::load);
+        }
+        if (access != null && admin && !access.allowed()) {
+            return new ProjectAccess(access.projectId(), access.path(), access.ownerId(), true);
+        }
+        return access;
+    }
+
+    ProjectAccess load(UUID projectId, UUID userId) {
+        List<Object[]> rows = Panache.getEntityManager()
+                .createQuery(ACCESS_QUERY, Object[].class)
+                .setParameter("projectId", projectId)
+                .setParameter("userId", userId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return new ProjectAccess(projectId, (String) row[0], (UUID) row[1], Boolean.TRUE.equals(row[2]));
+    }
+}
@@ -0,0 +1,148 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.data.dto.ProjectResponse;
+import fr.epita.assistants.ping.data.dto.UserSummaryResponse;
+import fr.epita.assistants.ping.data.model.ProjectModel;
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.panache.common.Parameters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Project listings, keyset paginated on the project id (see {@link ListQuery}).
+ *
+ * Responses are built from projections, never from entities: one query for the projects and their
+ * owner, then one query per {@link #MEMBERS_BATCH} projects for the member summaries. A listing
+ * costs the same number of statements whether projects have 1 or 1000 members.
+ * Unbounded listings go through {@link #stream}, which never holds more than one batch.
+ */
+@ApplicationScoped
+public class ProjectListing {
+    static final int MEMBERS_BATCH = 1000;
+
+    private static final String PROJECTS = "select p.id, p.name, o.id, o.displayName, o.avatar"
+            + " from ProjectModel p join p.owner o where ";
+    private static final String MEMBERS = "select p.id, m.id, m.displayName, m.avatar"
+            + " from ProjectModel p join p.members m where p.id in :ids order by m.id";
+
+    /**
+     * @param userId    only the projects this user owns or is a member of, null for every project
+     * @param onlyOwned only the projects {@code userId} owns
+     */
+    public List<ProjectResponse> find(UUID userId, boolean onlyOwned, ListQuery query) {
+        Parameters params = new Parameters();
+        StringBuilder where = filter(userId, onlyOwned, query, params);
+        if (query.after() != null) {
+            where.append(" and p.id > :after");
+            params.and("after", query.after());
+        }
+
+        TypedQuery<Object[]> projects = Panache.getEntityManager()
+                .createQuery(PROJECTS + where + " order by p.id", Object[].class);
+        params.map().forEach(projects::setParameter);
+        if (query.limit() != null) {
+            projects.setMaxResults(query.limit());
+        }
+
+        Map<UUID, ProjectResponse> byId = new LinkedHashMap<>();
+        for (Object[] row : projects.getResultList()) {
+            add(byId, row);
+        }
+        addMembers(byId);
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Every project matching {@code query} (its limit and cursor are ignored), handed to {@code sink}
+     * as they are read. Projects are scrolled with a JDBC fetch size of one batch and their members
+     * are fetched batch by batch. Runs in its own read transaction, which PostgreSQL needs to fetch
+     * with a cursor instead of buffering the whole result.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void stream(UUID userId, boolean onlyOwned, ListQuery query, RowSink<? super ProjectResponse> sink)
+            throws IOException {
+        Parameters params = new Parameters();
+        StringBuilder where = filter(userId, onlyOwned, query, params);
+        SelectionQuery<Object[]> projects = Panache.getEntityManager().unwrap(Session.class)
+                .createSelectionQuery(PROJECTS + where + " order by p.id", Object[].class)
+                .setFetchSize(MEMBERS_BATCH)
+                .setReadOnly(true);
+        params.map().forEach(projects::setParameter);
+
+        Map<UUID, ProjectResponse> batch = new LinkedHashMap<>();
+        try (ScrollableResults<Object[]> rows = projects.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                add(batch, rows.get());
+                if (batch.size() == MEMBERS_BATCH) {
+                    emit(batch, sink);
+                }
+            }
+        }
+        emit(batch, sink);
+    }
+
+    /**
+     * @return number of projects matching the filters of {@code query}, all pages included
+     */
+    public long count(UUID userId, boolean onlyOwned, ListQuery query) {
+        Parameters params = new Parameters();
+        StringBuilder where = filter(userId, onlyOwned, query, params);
+        return ProjectModel.count("from ProjectModel p where " + where, params);
+    }
+
+    private static void add(Map<UUID, ProjectResponse> byId, Object[] row) {
+        UUID id = (UUID) row[0];
+        UserSummaryResponse owner = new UserSummaryResponse((UUID) row[2], (String) row[3], (String) row[4]);
+        byId.put(id, new ProjectResponse(id, (String) row[1], new ArrayList<>(), owner));
+    }
+
+    private void emit(Map<UUID, ProjectResponse> batch, RowSink<? super ProjectResponse> sink) throws IOException {
+        addMembers(batch);
+        for (ProjectResponse project : batch.values()) {
+            sink.accept(project);
+        }
+        batch.clear();
+    }
+
+    void addMembers(Map<UUID, ProjectResponse> byId) {
+        List<UUID> ids = new ArrayList<>(byId.keySet());
+        for (int from = 0; from < ids.size(); from += MEMBERS_BATCH) {
+            List<Object[]> rows = Panache.getEntityManager()
+                    .createQuery(MEMBERS, Object[].class)
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + MEMBERS_BATCH)))
+                    .getResultList();
+            for (Object[] row : rows) {
+                byId.get((UUID) row[0]).getMembers()
+                        .add(new UserSummaryResponse((UUID) row[1], (String) row[2], (String) row[3]));
+            }
+        }
+    }
+
+    private static StringBuilder filter(UUID userId, boolean onlyOwned, ListQuery query, Parameters params) {
+        StringBuilder where = new StringBuilder("1 = 1");
+        if (userId != null) {
+            where.append(onlyOwned
+                    ? " and p.owner.id = :userId"
+                    : " and (p.owner.id = :userId or exists (select 1 from ProjectModel q join q.members m"
+                            + " where q.id = p.id and m.id = :userId))");
+            params.and("userId", userId);
+        }
+        if (query.hasName()) {
+            where.append(" and lower(p.name) like :name escape '\\'");
+            params.and("name", query.namePattern());
+        }
+        return where;
+    }
+}
@@ -0,0 +1,104 @@
+package fr.epita.assistants.ping.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Filesystem step of batch project creation: every project directory, with the starter files, created
+ * on virtual threads, at most {@code ping.provisioning.parallelism} projects at a time so a roll-out
+ * does not starve the interactive file endpoints.
+ */
+@ApplicationScoped
+public class ProjectProvisioner {
+
+    @ConfigProperty(name = "ping.provisioning.parallelism", defaultValue = "16")
+    int parallelism;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    /**
+     * @param files starter files, relative to each project directory (already checked not to escape it)
+     * @throws IOException the first failure; the directories of every project are removed then
+     */
+    public void createDirectories(List<Path> roots, Map<Path, byte[]> files) throws IOException {
+        Semaphore slots = new Semaphore(parallelism);
+        List<Future<Void>> tasks = new ArrayList<>(roots.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path root : roots) {
+                tasks.add(executor.submit(() -> {
+                    slots.acquire();
+                    try {
+                        create(root, files);
+                        return null;
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+        }
+
+        IOException failure = null;
+        for (Future<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = failure != null ? failure : new IOException("Interrupted while provisioning projects");
+            }
+        }
+        if (failure != null) {
+            roots.forEach(ProjectProvisioner::deleteQuietly);
+            throw failure;
+        }
+    }
+
+    private void create(Path root, Map<Path, byte[]> files) throws IOException {
+        Files.createDirectories(root);
+        for (Map.Entry<Path, byte[]> file : files.entrySet()) {
+            Path target = root.resolve(file.getKey());
+            Files.createDirectories(target.getParent());
+            Files.write(target, file.getValue());
+            if (metrics != null) {
+                metrics.addBytesWritten(file.getValue().length);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path root) {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // best effort, an orphan directory is harmless
+        }
+    }
+}
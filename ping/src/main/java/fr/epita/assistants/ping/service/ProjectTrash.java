@@ -0,0 +1,277 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.utils.Logger;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Project directories are not deleted in the request: {@link #trash} renames them into
+ * {@code PROJECT_DEFAULT_PATH/.trash} (same filesystem, so the rename is atomic and instant) and a
+ * background reaper deletes them after the transaction commits, at most {@code ping.trash.files-per-second}
+ * files per second so it does not compete with the file endpoints for the disk. A rolled back
+ * delete puts the directory back.
+ *
+ * A tombstone that cannot be deleted (a permission, a busy mount) is retried with a backoff doubling
+ * from a second up to {@code ping.trash.max-retry-seconds}, and listed as failed in the meantime.
+ * Whatever is left in the trash at startup (the reaper was interrupted) is reaped again.
+ */
+@ApplicationScoped
+public class ProjectTrash {
+    static final String TRASH_DIR = ".trash";
+
+    @ConfigProperty(name = "PROJECT_DEFAULT_PATH")
+    String projectDefaultPath;
+
+    @ConfigProperty(name = "ping.trash.files-per-second", defaultValue = "2000")
+    int filesPerSecond;
+
+    @ConfigProperty(name = "ping.trash.max-retry-seconds", defaultValue = "600")
+    long maxRetrySeconds;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @Inject
+    Event<Trashed> trashed;
+
+    private final LinkedBlockingQueue<Path> pending = new LinkedBlockingQueue<>();
+    // tombstones waiting for a retry, only touched by the reaper thread apart from status()
+    private final Map<Path, Failure> failed = new ConcurrentHashMap<>();
+    private final AtomicLong deletedFiles = new AtomicLong();
+    private final AtomicLong freedBytes = new AtomicLong();
+    private volatile Path current;
+    private volatile boolean running;
+    private Path trash;
+    private Thread reaper;
+
+    /**
+     * A project directory moved to the trash by the current transaction.
+     */
+    public record Trashed(Path original, Path tombstone) {}
+
+    /**
+     * A tombstone whose last deletion failed.
+     *
+     * @param retryAt when the reaper tries it again
+     */
+    public record Failure(String tombstone, int attempts, String error, Instant retryAt) {}
+
+    /**
+     * Reaper progress, for admins.
+     *
+     * @param current tombstone being deleted, null when idle
+     * @param pending tombstones waiting, {@code current} and failed ones excluded
+     */
+    public record Status(String current, List<String> pending, List<Failure> failed, long deletedFiles,
+                         long freedBytes) {}
+
+    void onStart(@Observes StartupEvent event) {
+        trash = Paths.get(projectDefaultPath).resolve(TRASH_DIR);
+        try {
+            Files.createDirectories(trash);
+            try (Stream<Path> leftovers = Files.list(trash)) {
+                leftovers.sorted().forEach(pending::add);
+            }
+        } catch (IOException e) {
+            logger.error("Project trash disabled, cannot open " + trash + ": " + e.getMessage());
+            return;
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Resuming deletion of " + pending.size() + " trashed projects");
+        }
+        if (metrics != null) {
+            metrics.registerGauge("ping_trash_pending", () -> pending.size() + (current != null ? 1 : 0));
+            metrics.registerGauge("ping_trash_failed", failed::size);
+            metrics.registerCounter("ping_trash_deleted_files_total", deletedFiles::get);
+            metrics.registerCounter("ping_trash_freed_bytes_total", freedBytes::get);
+        }
+        running = true;
+        reaper = new Thread(this::reaperLoop, "ping-trash-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (reaper != null) {
+            reaper.interrupt();
+        }
+    }
+
+    /**
+     * Moves {@code projectDir} out of the way, to be deleted once the current transaction commits.
+     * Does nothing if the directory does not exist.
+     */
+    public void trash(Path projectDir, UUID projectId) throws IOException {
+        if (trash == null || !Files.exists(projectDir)) {
+            return;
+        }
+        Path tombstone = trash.resolve(projectId + "-" + System.currentTimeMillis());
+        Files.move(projectDir, tombstone, StandardCopyOption.ATOMIC_MOVE);
+        trashed.fire(new Trashed(projectDir, tombstone));
+    }
+
+    void committed(@Observes(during = TransactionPhase.AFTER_SUCCESS) Trashed event) {
+        pending.add(event.tombstone());
+    }
+
+    void rolledBack(@Observes(during = TransactionPhase.AFTER_FAILURE) Trashed event) {
+        try {
+            Files.move(event.tombstone(), event.original(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not restore " + event.original() + " from the trash: " + e.getMessage());
+        }
+    }
+
+    public Status status() {
+        Path reaping = current;
+        return new Status(reaping != null ? reaping.getFileName().toString() : null,
+                pending.stream().map(path -> path.getFileName().toString()).toList(),
+                failed.values().stream().sorted(Comparator.comparing(Failure::retryAt)).toList(),
+                deletedFiles.get(), freedBytes.get());
+    }
+
+    private void reaperLoop() {
+        while (running) {
+            Path tombstone;
+            try {
+                tombstone = next();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (tombstone == null) {
+                continue;
+            }
+            current = tombstone;
+            try {
+                reap(tombstone);
+                failed.remove(tombstone);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                retryLater(tombstone, e);
+            } finally {
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * The first failed tombstone due for a retry, else the next pending one, waiting at most until
+     * the earliest retry.
+     *
+     * @return null if the wait ran out with nothing to do
+     */
+    private Path next() throws InterruptedException {
+        Instant now = Instant.now();
+        Failure due = null;
+        for (Failure failure : failed.values()) {
+            if (due == null || failure.retryAt().isBefore(due.retryAt())) {
+                due = failure;
+            }
+        }
+        if (due != null && !due.retryAt().isAfter(now)) {
+            return trash.resolve(due.tombstone());
+        }
+        if (due == null) {
+            return pending.take();
+        }
+        return pending.poll(Duration.between(now, due.retryAt()).toMillis() + 1, TimeUnit.MILLISECONDS);
+    }
+
+    private void retryLater(Path tombstone, IOException e) {
+        Failure previous = failed.get(tombstone);
+        int attempts = previous != null ? previous.attempts() + 1 : 1;
+        long backoff = Math.min(maxRetrySeconds, 1L << Math.min(attempts - 1, 30));
+        failed.put(tombstone, new Failure(tombstone.getFileName().toString(), attempts, String.valueOf(e.getMessage()),
+                Instant.now().plusSeconds(backoff)));
+        logger.error("Could not reap " + tombstone + " (attempt " + attempts + "), retrying in " + backoff + "s: "
+                + e.getMessage());
+    }
+
+    private void reap(Path tombstone) throws IOException, InterruptedException {
+        if (!Files.exists(tombstone)) {
+            // removed by hand while waiting for a retry
+            return;
+        }
+        Reaper reaper = new Reaper();
+        Files.walkFileTree(tombstone, reaper);
+        if (reaper.interrupted != null) {
+            throw reaper.interrupted;
+        }
+    }
+
+    /**
+     * Deletes a tree bottom-up, sleeping out the rest of the second every {@code filesPerSecond} files.
+     */
+    private final class Reaper extends SimpleFileVisitor<Path> {
+        private long windowStart = System.nanoTime();
+        private int inWindow;
+        private InterruptedException interrupted;
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+            Files.delete(file);
+            deletedFiles.incrementAndGet();
+            freedBytes.addAndGet(attributes.size());
+            return throttle();
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+            if (e != null) {
+                throw e;
+            }
+            Files.delete(dir);
+            return throttle();
+        }
+
+        private FileVisitResult throttle() {
+            if (++inWindow < filesPerSecond) {
+                return FileVisitResult.CONTINUE;
+            }
+            try {
+                long sleep = TimeUnit.SECONDS.toNanos(1) - (System.nanoTime() - windowStart);
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+            } catch (InterruptedException e) {
+                interrupted = e;
+                return FileVisitResult.TERMINATE;
+            }
+            inWindow = 0;
+            windowStart = System.nanoTime();
+            return FileVisitResult.CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package fr.epita.assistants.ping.service;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a streamed listing one at a time, typically to write them to the response.
+ */
+@FunctionalInterface
+public interface RowSink<T> {
+    void accept(T row) throws IOException;
+}
@@ -0,0 +1,21 @@
+package fr.epita.assistants.ping.service;
+
+import io.smallrye.jwt.auth.principal.DefaultJWTCallerPrincipal;
+import org.jose4j.jwt.JwtClaims;
+
+/**
+ * Principal remembering how long its token took to verify, so the request it authenticated
+ * can report it (the verification runs before any JAX-RS filter and maybe on another thread).
+ */
+public class TimedJwtCallerPrincipal extends DefaultJWTCallerPrincipal {
+    private final long verifyNanos;
+
+    public TimedJwtCallerPrincipal(String rawToken, String tokenType, JwtClaims claims, long verifyNanos) {
+        super(rawToken, tokenType, claims);
+        this.verifyNanos = verifyNanos;
+    }
+
+    public long getVerifyNanos() {
+        return verifyNanos;
+    }
+}
@@ -0,0 +1,145 @@
+package fr.epita.assistants.ping.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.smallrye.jwt.auth.principal.DefaultJWTTokenParser;
+import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
+import io.smallrye.jwt.auth.principal.JWTCallerPrincipal;
+import io.smallrye.jwt.auth.principal.JWTCallerPrincipalFactory;
+import io.smallrye.jwt.auth.principal.ParseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.inject.Inject;
+import jakarta.json.JsonNumber;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtContext;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Same verification as the default smallrye factory, timed, plus the {@link TokenRevocations} check.
+ *
+ * Verified tokens are remembered by SHA-256 digest until their exp, so the front end sending the
+ * same bearer token on every call only pays the RS256 signature check once. A hit re-reads the
+ * claims from their JSON form (no crypto) and still goes through the revocation check.
+ */
+@ApplicationScoped
+@Alternative
+@Priority(1)
+public class TimedJwtCallerPrincipalFactory extends JWTCallerPrincipalFactory {
+    private final DefaultJWTTokenParser parser = new DefaultJWTTokenParser();
+
+    @ConfigProperty(name = "ping.jwt-cache.max-size", defaultValue = "10000")
+    long cacheSize;
+
+    @Inject
+    TokenRevocations revocations;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    private Cache<String, Verified> verified;
+
+    /**
+     * @param expiresAt token exp, in epoch seconds
+     */
+    private record Verified(String type, String claims, long expiresAt) {}
+
+    @PostConstruct
+    void init() {
+        verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(Expiry.creating((String digest, Verified token) ->
+                        Duration.ofSeconds(Math.max(0, token.expiresAt() - System.currentTimeMillis() / 1000))))
+                .recordStats()
+                .build();
+        if (metrics != null) {
+            metrics.registerCounter("ping_jwt_cache_hits_total", () -> verified.stats().hitCount());
+            metrics.registerCounter("ping_jwt_cache_misses_total", () -> verified.stats().missCount());
+        }
+    }
+
+    @Override
+    public JWTCallerPrincipal parse(String token, JWTAuthContextInfo authContextInfo) throws ParseException {
+        long start = System.nanoTime();
+        String digest = digest(token);
+        Verified cached = verified.getIfPresent(digest);
+
+        TimedJwtCallerPrincipal principal;
+        if (cached != null) {
+            principal = new TimedJwtCallerPrincipal(token, cached.type(), claims(cached), System.nanoTime() - start);
+        } else {
+            JwtContext jwt = parser.parse(token, authContextInfo);
+            String type = jwt.getJoseObjects().get(0).getHeader("typ");
+            JwtClaims claims = jwt.getJwtClaims();
+            Verified entry = new Verified(type, claims.toJson(), expiresAt(claims));
+            principal = new TimedJwtCallerPrincipal(token, type, claims, System.nanoTime() - start);
+            verified.put(digest, entry);
+        }
+        checkNotRevoked(principal);
+        return principal;
+    }
+
+    private void checkNotRevoked(JWTCallerPrincipal principal) throws ParseException {
+        UUID userId;
+        try {
+            userId = UUID.fromString(principal.getSubject());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ParseException("Token subject is not a user id");
+        }
+        if (revocations.isRevoked(userId, issued(principal))) {
+            throw new ParseException("Token revoked");
+        }
+    }
+
+    /**
+     * The token's issue stamp; a token without one counts as issued at the start of its iat second,
+     * so a revocation within that second still rejects it.
+     */
+    private static long issued(JWTCallerPrincipal principal) {
+        Object claim = principal.getClaim(TokenRevocations.ISSUE_CLAIM);
+        if (claim instanceof JsonNumber number) {
+            return number.longValue();
+        }
+        if (claim instanceof Number number) {
+            return number.longValue();
+        }
+        return principal.getIssuedAtTime() * 1_000_000;
+    }
+
+    private static JwtClaims claims(Verified cached) throws ParseException {
+        try {
+            return JwtClaims.parse(cached.claims());
+        } catch (InvalidJwtException e) {
+            throw new ParseException("Cached claims are unreadable", e);
+        }
+    }
+
+    private static long expiresAt(JwtClaims claims) throws ParseException {
+        try {
+            return claims.getExpirationTime().getValue();
+        } catch (MalformedClaimException | NullPointerException e) {
+            throw new ParseException("Token has no valid exp claim", e);
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package fr.epita.assistants.ping.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user epoch: tokens of a user issued before its epoch are rejected.
+ * Authorization trusts the token claims (subject, groups), so anything that makes those claims
+ * stale (user deleted, role changed) must bump the epoch here.
+ * Entries are only needed until the last token they reject has expired anyway.
+ *
+ * Epochs and tokens are ordered by {@link #stamp()}, not iat: iat only has whole seconds, so a
+ * token issued in the same second as a revocation could not tell whether it came before or after.
+ */
+@ApplicationScoped
+public class TokenRevocations {
+    /**
+     * Private token claim holding its {@link #stamp()}.
+     */
+    static final String ISSUE_CLAIM = "ping_issued";
+
+    private static final AtomicLong LAST_STAMP = new AtomicLong();
+
+    private final Map<UUID, Long> revokedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * Strictly increasing within the process, in epoch microseconds so it also keeps increasing
+     * across restarts: whatever is stamped after a revocation compares greater than its epoch.
+     */
+    static long stamp() {
+        long now = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        return LAST_STAMP.updateAndGet(last -> Math.max(last + 1, now));
+    }
+
+    /**
+     * Rejects every token of {@code userId} issued up to now.
+     */
+    public void revoke(UUID userId) {
+        long now = stamp();
+        revokedUntil.merge(userId, now, Math::max);
+        long oldest = now - JwtService.TOKEN_LIFETIME.toNanos() / 1000;
+        revokedUntil.values().removeIf(epoch -> epoch < oldest);
+    }
+
+    /**
+     * @param issued token {@link #ISSUE_CLAIM}, in epoch microseconds
+     */
+    public boolean isRevoked(UUID userId, long issued) {
+        Long epoch = revokedUntil.get(userId);
+        return epoch != null && issued < epoch;
+    }
+}
@@ -0,0 +1,354 @@
+package fr.epita.assistants.ping.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import fr.epita.assistants.ping.utils.Logger;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resumable uploads: a session creates a sparse part file of the announced size in the
+ * {@link AtomicFiles#staging} directory, chunks are written at their offset in any order and from
+ * several connections, and completing hashes the part file, then renames it over the target with
+ * {@link AtomicFiles#publish} (same filesystem, so readers see the old file or the whole new one).
+ *
+ * The part file takes disk space only as chunks arrive, so the announced sizes of open sessions are
+ * reserved in memory instead: a session is refused (507) when the staging filesystem's usable space
+ * minus what open sessions may still write cannot hold it. That reservation is only advisory, the
+ * space can still go to something else (another upload path, git, other processes): a chunk that
+ * then hits a full disk is answered 507 too, is not marked received, and can be sent again once
+ * space is freed. Each user and each project may only have a few sessions open at once (429).
+ *
+ * Sessions live in memory and expire {@code ping.upload.session-ttl-minutes} after their last use;
+ * part files left by a restart are deleted at startup with the rest of the staging directory.
+ */
+@ApplicationScoped
+public class UploadSessions {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @ConfigProperty(name = "ping.upload.chunk-size", defaultValue = "8388608")
+    long defaultChunkSize;
+
+    @ConfigProperty(name = "ping.upload.max-chunk-size", defaultValue = "67108864")
+    long maxChunkSize;
+
+    @ConfigProperty(name = "ping.upload.max-size", defaultValue = "10737418240")
+    long maxSize;
+
+    @ConfigProperty(name = "ping.upload.session-ttl-minutes", defaultValue = "60")
+    long ttlMinutes;
+
+    @ConfigProperty(name = "ping.upload.max-sessions-per-user", defaultValue = "8")
+    int maxSessionsPerUser;
+
+    @ConfigProperty(name = "ping.upload.max-sessions-per-project", defaultValue = "32")
+    int maxSessionsPerProject;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    MetricsRegistry metrics;
+
+    @Inject
+    AtomicFiles atomicFiles;
+
+    private Cache<UUID, Session> sessions;
+    // announced sizes of the open sessions, guarded by this
+    private long reserved;
+
+    /**
+     * The request cannot be applied to the session, answered with {@code status}.
+     */
+    public static class UploadException extends Exception {
+        private final int status;
+
+        public UploadException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    public static final class Session {
+        private final UUID id = UUID.randomUUID();
+        private final UUID projectId;
+        private final UUID userId;
+        private final String relativePath;
+        private final Path target;
+        private final Path part;
+        private final long size;
+        private final long chunkSize;
+        private final int chunkCount;
+        private final BitSet received;
+        // chunk writes share the lock, completing takes it alone
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private boolean closed;
+
+        private Session(UUID projectId, UUID userId, String relativePath, Path target, Path staging,
+                        long size, long chunkSize) {
+            this.projectId = projectId;
+            this.userId = userId;
+            this.relativePath = relativePath;
+            this.target = target;
+            this.part = staging.resolve(id + ".part");
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+            this.received = new BitSet(chunkCount);
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public UUID getProjectId() {
+            return projectId;
+        }
+
+        public UUID getUserId() {
+            return userId;
+        }
+
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getChunkSize() {
+            return chunkSize;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        public synchronized List<Integer> received() {
+            return received.stream().boxed().toList();
+        }
+
+        private synchronized void markReceived(int index) {
+            received.set(index);
+        }
+
+        private synchronized boolean complete() {
+            // an empty file has a single, empty, chunk that needs no upload
+            return size == 0 || received.cardinality() == chunkCount;
+        }
+
+        private long chunkLength(int index) {
+            return Math.min(chunkSize, size - index * chunkSize);
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        sessions = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((UUID id, Session session, RemovalCause cause) -> discard(session, cause))
+                .build();
+        if (metrics != null) {
+            metrics.registerGauge("ping_upload_sessions", () -> sessions.estimatedSize());
+            metrics.registerGauge("ping_upload_reserved_bytes", this::reserved);
+        }
+    }
+
+    /**
+     * Starts a session for {@code target}, reserving its size, and creates its sparse part file.
+     *
+     * @param chunkSize null for {@code ping.upload.chunk-size}
+     */
+    public Session open(UUID projectId, UUID userId, String relativePath, Path target, long size, Long chunkSize)
+            throws UploadException, IOException {
+        long chunk = chunkSize != null ? chunkSize : defaultChunkSize;
+        if (size < 0 || size > maxSize) {
+            throw new UploadException(400, "The upload size must be between 0 and " + maxSize + " bytes");
+        }
+        if (chunk <= 0 || chunk > maxChunkSize || (size + chunk - 1) / chunk > Integer.MAX_VALUE) {
+            throw new UploadException(400, "The chunk size must be between 1 and " + maxChunkSize + " bytes");
+        }
+        Session session = new Session(projectId, userId, relativePath, target, atomicFiles.staging(), size, chunk);
+        reserve(session);
+        boolean opened = false;
+        try (RandomAccessFile file = new RandomAccessFile(session.part.toFile(), "rw")) {
+            file.setLength(size);
+            opened = true;
+            return session;
+        } finally {
+            if (!opened) {
+                sessions.invalidate(session.id);
+            }
+        }
+    }
+
+    /**
+     * Counts the session against its user, its project and the staging filesystem and registers it,
+     * or refuses it. Reading the usable space is a statfs, cheap next to creating the part file.
+     */
+    private synchronized void reserve(Session session) throws UploadException, IOException {
+        int byUser = 0;
+        int byProject = 0;
+        for (Session open : sessions.asMap().values()) {
+            byUser += open.userId.equals(session.userId) ? 1 : 0;
+            byProject += open.projectId.equals(session.projectId) ? 1 : 0;
+        }
+        if (byUser >= maxSessionsPerUser) {
+            throw new UploadException(429, "Too many uploads in progress, at most " + maxSessionsPerUser + " per user");
+        }
+        if (byProject >= maxSessionsPerProject) {
+            throw new UploadException(429, "Too many uploads in progress, at most " + maxSessionsPerProject
+                    + " per project");
+        }
+        // open part files already hold some of their reservation, counting it twice errs on the safe side
+        long usable = Files.getFileStore(atomicFiles.staging()).getUsableSpace();
+        if (session.size > usable - reserved) {
+            throw new UploadException(507, "Not enough storage for an upload of " + session.size + " bytes");
+        }
+        reserved += session.size;
+        sessions.put(session.id, session);
+    }
+
+    private synchronized void release(Session session) {
+        reserved -= session.size;
+    }
+
+    private synchronized long reserved() {
+        return reserved;
+    }
+
+    /**
+     * @return the session, null if it does not exist, expired or was completed
+     */
+    public Session get(UUID id) {
+        return sessions.getIfPresent(id);
+    }
+
+    /**
+     * Writes chunk {@code index} at its offset. The body must be exactly the chunk's length, the last
+     * chunk being the remainder of the size. Sending a chunk again overwrites it.
+     *
+     * @return bytes written
+     */
+    public long writeChunk(Session session, int index, InputStream body) throws UploadException, IOException {
+        if (index < 0 || index >= session.chunkCount) {
+            throw new UploadException(400, "The chunk index must be between 0 and " + (session.chunkCount - 1));
+        }
+        long expected = session.chunkLength(index);
+        session.lock.readLock().lock();
+        try {
+            if (session.closed) {
+                throw new UploadException(409, "The upload is being completed");
+            }
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(session.part, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long position = index * session.chunkSize;
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (written + read > expected) {
+                        throw new UploadException(400, "Chunk " + index + " must be " + expected + " bytes");
+                    }
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        position += channel.write(bytes, position);
+                    }
+                    written += read;
+                }
+            } catch (IOException e) {
+                if (outOfSpace(expected - written)) {
+                    throw new UploadException(507, "Not enough storage to write chunk " + index);
+                }
+                throw e;
+            }
+            if (written != expected) {
+                throw new UploadException(400, "Chunk " + index + " must be " + expected + " bytes");
+            }
+            session.markReceived(index);
+            return written;
+        } finally {
+            session.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether a failed write was the staging filesystem filling up (ENOSPC has no exception type of
+     * its own): less usable space left than the {@code missing} bytes of the chunk.
+     */
+    private boolean outOfSpace(long missing) {
+        try {
+            return Files.getFileStore(atomicFiles.staging()).getUsableSpace() < missing;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the digest of the part file and renames it over the target once every chunk is in,
+     * and ends the session.
+     */
+    public AtomicFiles.Written complete(Session session) throws UploadException, IOException {
+        AtomicFiles.Written written;
+        session.lock.writeLock().lock();
+        try {
+            if (session.closed) {
+                throw new UploadException(409, "The upload is already completed");
+            }
+            if (!session.complete()) {
+                throw new UploadException(409, "Chunks are missing, received "
+                        + session.received().size() + " of " + session.chunkCount);
+            }
+            Files.createDirectories(session.target.getParent());
+            written = atomicFiles.hash(session.part);
+            atomicFiles.publish(session.part, session.target);
+            session.closed = true;
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+        sessions.invalidate(session.id);
+        return written;
+    }
+
+    public void abort(Session session) {
+        sessions.invalidate(session.id);
+    }
+
+    private void discard(Session session, RemovalCause cause) {
+        if (session == null) {
+            return;
+        }
+        release(session);
+        try {
+            Files.deleteIfExists(session.part);
+        } catch (IOException e) {
+            logger.error("Could not delete upload part " + session.part + ": " + e.getMessage());
+        }
+        if (cause == RemovalCause.EXPIRED) {
+            logger.info("Upload session " + session.id + " for " + session.relativePath + " expired");
+        }
+    }
+}
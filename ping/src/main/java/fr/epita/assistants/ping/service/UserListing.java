@@ -0,0 +1,92 @@
+package fr.epita.assistants.ping.service;
+
+import fr.epita.assistants.ping.data.dto.UserResponse;
+import fr.epita.assistants.ping.data.model.UserModel;
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.panache.common.Parameters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * User listings, keyset paginated on the user id (see {@link ListQuery}), built from projections.
+ */
+@ApplicationScoped
+public class UserListing {
+    private static final int FETCH_SIZE = 1000;
+    private static final String USERS = "select u.id, u.login, u.displayName, u.isAdmin, u.avatar"
+            + " from UserModel u where ";
+
+    public List<UserResponse> find(ListQuery query) {
+        Parameters params = new Parameters();
+        StringBuilder where = filter(query, params);
+        if (query.after() != null) {
+            where.append(" and u.id > :after");
+            params.and("after", query.after());
+        }
+
+        TypedQuery<Object[]> users = Panache.getEntityManager()
+                .createQuery(USERS + where + " order by u.id", Object[].class);
+        params.map().forEach(users::setParameter);
+        if (query.limit() != null) {
+            users.setMaxResults(query.limit());
+        }
+
+        List<UserResponse> page = new ArrayList<>();
+        for (Object[] row : users.getResultList()) {
+            page.add(user(row));
+        }
+        return page;
+    }
+
+    /**
+     * @return number of users matching the filters of {@code query}, all pages included
+     */
+    public long count(ListQuery query) {
+        Parameters params = new Parameters();
+        return UserModel.count("from UserModel u where " + filter(query, params), params);
+    }
+
+    /**
+     * Every user matching {@code query} (its limit and cursor are ignored), handed to {@code sink}
+     * as they are read, see {@link ProjectListing#stream}.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void stream(ListQuery query, RowSink<? super UserResponse> sink) throws IOException {
+        Parameters params = new Parameters();
+        StringBuilder where = filter(query, params);
+        SelectionQuery<Object[]> users = Panache.getEntityManager().unwrap(Session.class)
+                .createSelectionQuery(USERS + where + " order by u.id", Object[].class)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true);
+        params.map().forEach(users::setParameter);
+
+        try (ScrollableResults<Object[]> rows = users.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                sink.accept(user(rows.get()));
+            }
+        }
+    }
+
+    private static UserResponse user(Object[] row) {
+        return new UserResponse((UUID) row[0], (String) row[1], (String) row[2], (Boolean) row[3], (String) row[4]);
+    }
+
+    private static StringBuilder filter(ListQuery query, Parameters params) {
+        StringBuilder where = new StringBuilder("1 = 1");
+        if (query.hasName()) {
+            where.append(" and (lower(u.login) like :name escape '\\' or lower(u.displayName) like :name escape '\\')");
+            params.and("name", query.namePattern());
+        }
+        return where;
+    }
+}
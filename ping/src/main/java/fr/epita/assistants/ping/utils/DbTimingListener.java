@@ -0,0 +1,65 @@
+package fr.epita.assistants.ping.utils;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Hibernate session listener charging JDBC time (connection acquisition, statement preparation
+ * and execution, batches) to the DB phase of the current {@link RequestTrace}.
+ * Hibernate creates one per session, registered through hibernate.session.events.auto.
+ */
+public class DbTimingListener implements SessionEventListener {
+    private RequestTrace.Span span;
+
+    private void start() {
+        if (span == null) {
+            span = RequestTrace.phase(RequestTrace.Phase.DB);
+        }
+    }
+
+    private void stop() {
+        if (span != null) {
+            span.close();
+            span = null;
+        }
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        start();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        stop();
+    }
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        start();
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        stop();
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        start();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        stop();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        start();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        stop();
+    }
+}
@@ -1,17 +1,314 @@
 package fr.epita.assistants.ping.utils;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Shared application log.
+ * Request threads only push lines into a bounded ring buffer, a single writer thread
+ * drains it and group-commits every batch through two long-lived FileChannels
+ * (LOG_FILE and ERROR_LOG_FILE).
+ *
+ * When the buffer is full the overflow policy applies:
+ *  - drop  (default) the line is discarded and counted, the writer reports the count in the error log
+ *  - block the caller waits until the writer frees a slot
+ */
+@ApplicationScoped
 public class Logger {
     private static final String RESET_TEXT = "\u001B[0m";
     private static final String RED_TEXT = "\u001B[31m";
     private static final String GREEN_TEXT = "\u001B[32m";
 
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("dd/MM/yy - HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    private static final int MAX_BATCH = 1024;
 
-    private static String timestamp() {
-        return new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
+    public enum FsyncPolicy { NONE, BATCH, INTERVAL }
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    @ConfigProperty(name = "LOG_FILE")
+    String logFile;
+
+    @ConfigProperty(name = "ERROR_LOG_FILE")
+    String errorLogFile;
+
+    @ConfigProperty(name = "ping.log.buffer-size", defaultValue = "8192")
+    int bufferSize;
+
+    @ConfigProperty(name = "ping.log.fsync", defaultValue = "none")
+    FsyncPolicy fsyncPolicy;
+
+    @ConfigProperty(name = "ping.log.fsync-interval-ms", defaultValue = "1000")
+    long fsyncIntervalMs;
+
+    @ConfigProperty(name = "ping.log.max-file-size", defaultValue = "10485760")
+    long maxFileSize;
+
+    @ConfigProperty(name = "ping.log.max-files", defaultValue = "5")
+    int maxFiles;
+
+    @ConfigProperty(name = "ping.log.overflow", defaultValue = "drop")
+    OverflowPolicy overflowPolicy;
+
+    private record Entry(long timestamp, boolean error, String message) {}
+
+    private RingBuffer<Entry> buffer;
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicBoolean writerParked = new AtomicBoolean();
+    private volatile boolean running;
+    private Thread writer;
+
+    private LogChannel infoChannel;
+    private LogChannel errorChannel;
+    private long lastSync;
+
+    @PostConstruct
+    void start() {
+        buffer = new RingBuffer<>(bufferSize);
+        infoChannel = new LogChannel(Paths.get(logFile), false);
+        errorChannel = new LogChannel(Paths.get(errorLogFile), true);
+        lastSync = System.nanoTime();
+        running = true;
+        writer = new Thread(this::writerLoop, "ping-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        infoChannel.close();
+        errorChannel.close();
+    }
+
+    public void info(String message) {
+        enqueue(new Entry(System.currentTimeMillis(), false, message));
+    }
+
+    public void error(String message) {
+        enqueue(new Entry(System.currentTimeMillis(), true, message));
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private void enqueue(Entry entry) {
+        try (RequestTrace.Span span = RequestTrace.phase(RequestTrace.Phase.LOG)) {
+            if (!buffer.offer(entry)) {
+                if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                    dropped.increment();
+                    return;
+                }
+                wakeWriter();
+                while (!buffer.offer(entry)) {
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+            wakeWriter();
+        }
+    }
+
+    private void wakeWriter() {
+        if (writerParked.get() && writerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writerLoop() {
+        StringBuilder infoBatch = new StringBuilder(16 * 1024);
+        StringBuilder errorBatch = new StringBuilder(4 * 1024);
+
+        while (running || !buffer.isEmpty()) {
+            int drained = buffer.drain(entry -> format(entry, entry.error() ? errorBatch : infoBatch), MAX_BATCH);
+            long lost = dropped.sumThenReset();
+            if (lost > 0) {
+                format(new Entry(System.currentTimeMillis(), true,
+                        "log buffer full, dropped " + lost + " lines"), errorBatch);
+            }
+
+            commit(infoChannel, infoBatch);
+            commit(errorChannel, errorBatch);
+            maybeSync(drained > 0);
+
+            if (drained == 0 && running) {
+                writerParked.set(true);
+                if (buffer.isEmpty()) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMs)));
+                }
+                writerParked.set(false);
+            }
+        }
+        infoChannel.sync();
+        errorChannel.sync();
+    }
+
+    private static void format(Entry entry, StringBuilder batch) {
+        batch.append('[').append(TIMESTAMP.format(Instant.ofEpochMilli(entry.timestamp()))).append("] ");
+        if (entry.error()) {
+            batch.append("ERROR: ");
+        }
+        batch.append(entry.message()).append('\n');
+    }
+
+    private void commit(LogChannel channel, StringBuilder batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        channel.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+        batch.setLength(0);
+    }
+
+    private void maybeSync(boolean wrote) {
+        switch (fsyncPolicy) {
+            case BATCH -> {
+                if (wrote) {
+                    infoChannel.sync();
+                    errorChannel.sync();
+                }
+            }
+            case INTERVAL -> {
+                long now = System.nanoTime();
+                if (now - lastSync >= TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs)) {
+                    infoChannel.sync();
+                    errorChannel.sync();
+                    lastSync = now;
+                }
+            }
+            case NONE -> { }
+        }
+    }
+
+    /**
+     * One append-only log file with size based rotation (app.log -> app.log.1 -> ... -> app.log.N).
+     * Falls back to the console when the file cannot be written, like the old per-call writers did.
+     */
+    private final class LogChannel {
+        private final Path path;
+        private final boolean error;
+        private FileChannel channel;
+        private long size;
+        private boolean dirty;
+
+        LogChannel(Path path, boolean error) {
+            this.path = path;
+            this.error = error;
+            open();
+        }
+
+        private void open() {
+            try {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+                size = channel.size();
+            } catch (IOException e) {
+                channel = null;
+            }
+        }
+
+        void write(byte[] bytes) {
+            if (channel != null && maxFileSize > 0 && size > 0 && size + bytes.length > maxFileSize) {
+                rotate();
+            }
+            if (channel == null) {
+                open();
+            }
+            if (channel == null) {
+                toConsole(bytes);
+                return;
+            }
+            try {
+                ByteBuffer buf = ByteBuffer.wrap(bytes);
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                size += bytes.length;
+                dirty = true;
+            } catch (IOException e) {
+                close();
+                toConsole(bytes);
+            }
+        }
+
+        private void rotate() {
+            close();
+            try {
+                for (int i = maxFiles - 1; i >= 1; i--) {
+                    Path src = Paths.get(path + "." + i);
+                    if (Files.exists(src)) {
+                        Files.move(src, Paths.get(path + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                if (maxFiles > 0) {
+                    Files.move(path, Paths.get(path + ".1"), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                // keep appending to the current file rather than losing lines
+            }
+            open();
+        }
+
+        void sync() {
+            if (channel == null || !dirty) {
+                return;
+            }
+            try {
+                channel.force(false);
+                dirty = false;
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+
+        private void toConsole(byte[] bytes) {
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            if (error) {
+                System.err.print(RED_TEXT + text + RESET_TEXT);
+            } else {
+                System.out.print(GREEN_TEXT + text + RESET_TEXT);
+            }
+        }
     }
 }
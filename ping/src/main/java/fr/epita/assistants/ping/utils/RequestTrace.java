@@ -0,0 +1,131 @@
+package fr.epita.assistants.ping.utils;
+
+import fr.epita.assistants.ping.utils.jfr.PhaseEvent;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Per-request bookkeeping opened by the RequestFilter and bound to the thread serving the request,
+ * so resources and services can enrich it without having it passed around.
+ *
+ * It also accumulates the time spent in each {@link Phase}, reported in the Server-Timing header
+ * and, for the DB/FS/git/log phases, as JFR events.
+ */
+@Getter
+@Setter
+public class RequestTrace {
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    public enum Phase {
+        JWT("jwt"), DB("db"), MEMBERS("members"), FS("fs"), GIT("git"), LOG("log");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private final int[] phaseCounts = new int[Phase.values().length];
+    private String action;
+    private UUID userId;
+    private UUID projectId;
+    private String path;
+
+    /**
+     * Times one phase until closed, meant for try-with-resources.
+     */
+    public final class Span implements AutoCloseable {
+        private final Phase phase;
+        private final long start = System.nanoTime();
+        private final PhaseEvent event;
+
+        private Span(Phase phase) {
+            this.phase = phase;
+            this.event = PhaseEvent.start(phase);
+        }
+
+        @Override
+        public void close() {
+            add(phase, System.nanoTime() - start);
+            if (event != null) {
+                event.finish(action, projectId);
+            }
+        }
+    }
+
+    public static RequestTrace begin() {
+        RequestTrace trace = new RequestTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * @return the trace of the request served by this thread, or a detached one outside of a request
+     */
+    public static RequestTrace current() {
+        RequestTrace trace = CURRENT.get();
+        return trace != null ? trace : new RequestTrace();
+    }
+
+    /**
+     * Binds an already open trace to this thread, when a request moves to another thread.
+     */
+    public static void attach(RequestTrace trace) {
+        CURRENT.set(trace);
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static Span phase(Phase phase) {
+        return current().span(phase);
+    }
+
+    public Span span(Phase phase) {
+        return new Span(phase);
+    }
+
+    public void add(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        phaseCounts[phase.ordinal()]++;
+    }
+
+    public long elapsedMicros() {
+        return (System.nanoTime() - startNanos) / 1_000;
+    }
+
+    /**
+     * @return the Server-Timing header value: one entry per phase seen, then the total (milliseconds)
+     */
+    public String serverTiming() {
+        StringBuilder out = new StringBuilder(96);
+        for (Phase phase : Phase.values()) {
+            if (phaseCounts[phase.ordinal()] > 0) {
+                appendMillis(out.append(phase.metricName).append(";dur="), phaseNanos[phase.ordinal()]);
+                out.append(", ");
+            }
+        }
+        appendMillis(out.append("total;dur="), System.nanoTime() - startNanos);
+        return out.toString();
+    }
+
+    private static void appendMillis(StringBuilder out, long nanos) {
+        long micros = nanos / 1_000;
+        out.append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,93 @@
+package fr.epita.assistants.ping.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free multi-producer / single-consumer ring buffer.
+ * Every slot carries a sequence number: producers claim a position with a CAS on the tail
+ * and publish by advancing the slot sequence, the single consumer frees the slot the same way.
+ */
+public final class RingBuffer<T> {
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // only touched by the consumer thread
+
+    public RingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return false if the buffer is full, the element is then not enqueued
+     */
+    public boolean offer(T element) {
+        long pos;
+        int idx;
+        while (true) {
+            pos = tail.get();
+            idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        slots[idx] = element;
+        sequences.lazySet(idx, pos + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side only.
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        int idx = (int) (head & mask);
+        if (sequences.get(idx) != head + 1) {
+            return null;
+        }
+        T element = (T) slots[idx];
+        slots[idx] = null;
+        sequences.lazySet(idx, head + slots.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Consumer side only, hands at most {@code max} elements to the sink.
+     */
+    public int drain(Consumer<T> sink, int max) {
+        int count = 0;
+        T element;
+        while (count < max && (element = poll()) != null) {
+            sink.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Consumer side only.
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+}
@@ -0,0 +1,11 @@
+package fr.epita.assistants.ping.utils.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fr.epita.assistants.ping.Db")
+@Label("Database")
+@Description("JDBC work (statement preparation and execution) and project access checks")
+public class DbPhaseEvent extends PhaseEvent {
+}
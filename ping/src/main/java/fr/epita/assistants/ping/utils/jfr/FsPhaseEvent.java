@@ -0,0 +1,11 @@
+package fr.epita.assistants.ping.utils.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fr.epita.assistants.ping.Fs")
+@Label("Filesystem")
+@Description("File and folder operations inside a project")
+public class FsPhaseEvent extends PhaseEvent {
+}
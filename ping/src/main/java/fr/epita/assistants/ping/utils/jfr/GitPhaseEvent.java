@@ -0,0 +1,11 @@
+package fr.epita.assistants.ping.utils.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fr.epita.assistants.ping.Git")
+@Label("Git")
+@Description("JGit command run through /exec")
+public class GitPhaseEvent extends PhaseEvent {
+}
@@ -0,0 +1,11 @@
+package fr.epita.assistants.ping.utils.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fr.epita.assistants.ping.Log")
+@Label("Log")
+@Description("Hand-off of a log line to the log writer")
+public class LogPhaseEvent extends PhaseEvent {
+}
@@ -0,0 +1,53 @@
+package fr.epita.assistants.ping.utils.jfr;
+
+import fr.epita.assistants.ping.utils.RequestTrace;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import java.util.UUID;
+
+/**
+ * JFR event covering one timed phase of a request, see {@link RequestTrace.Phase}.
+ * Recorded with the rest of the JVM activity, e.g. {@code -XX:StartFlightRecording=settings=profile},
+ * so a slow request can be lined up with GC pauses, lock contention or I/O of the same window.
+ */
+@Category({"PING", "Request phases"})
+public abstract class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Action")
+    String action;
+
+    @Label("Project")
+    String projectId;
+
+    /**
+     * @return a started event, or null when the phase has no event type or the event is disabled
+     */
+    public static PhaseEvent start(RequestTrace.Phase phase) {
+        PhaseEvent event = switch (phase) {
+            case DB, MEMBERS -> new DbPhaseEvent();
+            case FS -> new FsPhaseEvent();
+            case GIT -> new GitPhaseEvent();
+            case LOG -> new LogPhaseEvent();
+            case JWT -> null;
+        };
+        if (event == null || !event.isEnabled()) {
+            return null;
+        }
+        event.phase = phase.name();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String action, UUID projectId) {
+        end();
+        if (shouldCommit()) {
+            this.action = action;
+            this.projectId = projectId != null ? projectId.toString() : null;
+            commit();
+        }
+    }
+}
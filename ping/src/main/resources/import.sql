@@ -1,8 +1,9 @@
 -- Crée le login pour l'user admin
 -- Login: admin.user
--- Password: admin123
+-- Password: admin123 (stored as a PBKDF2 hash, see PasswordService)
 -- L'utilisateur admin est necessary
 INSERT INTO users (id, login, password, display_name, avatar, is_admin)
-VALUES ('00000000-0000-0000-0000-000000000001', 'admin.user', 'admin123', 'Admin User', '',
+VALUES ('00000000-0000-0000-0000-000000000001', 'admin.user',
+        'pbkdf2$600000$1AA+jq4JdJsrTrfkXlPWgQ==$Mza+0jUWu3O0V7qsQTqA1Zl6M5HGda6z9rXh1z14pfg=', 'Admin User', '',
         true)
     ON CONFLICT (id) DO NOTHING;
\ No newline at end of file
@@ -0,0 +1,106 @@
+package fr.epita.assistants.ping;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plain HTTP calls against the running test application, the way the front end makes them.
+ */
+public class ApiClient {
+    public static final String ADMIN_LOGIN = "admin.user";
+    public static final String ADMIN_PASSWORD = "admin123";
+
+    private final URI baseUri;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    public ApiClient(URI baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    public String login(String login, String password) throws Exception {
+        HttpResponse<String> response = send(post("/api/user/login", null,
+                "{\"login\":\"" + login + "\",\"password\":\"" + password + "\"}"));
+        assertThat(response.statusCode()).isEqualTo(200);
+        return json(response).get("token").asText();
+    }
+
+    public String loginAdmin() throws Exception {
+        return login(ADMIN_LOGIN, ADMIN_PASSWORD);
+    }
+
+    /**
+     * @return the new user's id
+     */
+    public String createUser(String adminToken, String login, String password) throws Exception {
+        HttpResponse<String> response = send(post("/api/user", adminToken,
+                "{\"login\":\"" + login + "\",\"password\":\"" + password + "\"}"));
+        assertThat(response.statusCode()).isEqualTo(200);
+        return json(response).get("id").asText();
+    }
+
+    /**
+     * @return the new project's id
+     */
+    public String createProject(String token, String name) throws Exception {
+        HttpResponse<String> response = send(post("/api/projects", token, "{\"name\":\"" + name + "\"}"));
+        assertThat(response.statusCode()).isEqualTo(200);
+        return json(response).get("id").asText();
+    }
+
+    public HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    public HttpRequest post(String path, String token, String body) {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    public HttpRequest put(String path, String token, String body) {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    public HttpRequest upload(String projectId, String token, String path, byte[] content) {
+        return request("/api/projects/" + projectId + "/files/upload?path=" + encode(path), token)
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(content))
+                .build();
+    }
+
+    public HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path)).timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    public JsonNode json(HttpResponse<String> response) throws IOException {
+        return response.body() == null || response.body().isEmpty() ? null : mapper.readTree(response.body());
+    }
+
+    public static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
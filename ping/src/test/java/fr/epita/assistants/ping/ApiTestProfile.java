@@ -0,0 +1,41 @@
+package fr.epita.assistants.ping;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Profile of the functional API tests: in-memory H2 in PostgreSQL mode, a throw-away
+ * PROJECT_DEFAULT_PATH and cheap password hashing, so {@code mvn test} runs them in seconds.
+ * Hibernate statistics are on for the tests that count SQL statements.
+ */
+public class ApiTestProfile implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        Path root;
+        try {
+            root = Files.createTempDirectory("ping-api");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Map.ofEntries(
+                Map.entry("quarkus.datasource.db-kind", "h2"),
+                Map.entry("quarkus.datasource.username", "sa"),
+                Map.entry("quarkus.datasource.jdbc.url",
+                        "jdbc:h2:mem:ping-api;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"),
+                Map.entry("quarkus.hibernate-orm.database.generation", "drop-and-create"),
+                Map.entry("quarkus.hibernate-orm.sql-load-script", "api-test.sql"),
+                Map.entry("quarkus.hibernate-orm.statistics", "true"),
+                Map.entry("ping.password.iterations", "1000"),
+                Map.entry("PROJECT_DEFAULT_PATH", root.resolve("projects") + "/"),
+                Map.entry("LOG_FILE", root.resolve("logs/app.log").toString()),
+                Map.entry("ERROR_LOG_FILE", root.resolve("logs/error.log").toString()),
+                Map.entry("ping.audit.dir", root.resolve("audit").toString())
+        );
+    }
+}
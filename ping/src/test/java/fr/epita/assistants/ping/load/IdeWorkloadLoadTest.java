@@ -0,0 +1,267 @@
+package fr.epita.assistants.ping.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import fr.epita.assistants.ping.utils.LatencyHistogram;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load harness replaying what the bundled index.html IDE does, against the real HTTP API.
+ * Every virtual user logs in, opens its project, then loops over browsing folders, opening and
+ * uploading files, and git add/commit through /exec.
+ *
+ * Disabled by default, run it with:
+ *   mvn test -Dtest=IdeWorkloadLoadTest -Dping.load=true [-Dping.load.users=16 -Dping.load.duration=30]
+ * It writes per-endpoint throughput and p50/p99/p999 to target/load-report.json (ping.load.output),
+ * with the SQL statements per request and the second-level cache hits; run it again with
+ * -Dping.load.l2-cache=false to see the round-trips the cache saves.
+ * The functional checks of the same endpoints run with every build, in presentation.rest.
+ */
+@QuarkusTest
+@TestProfile(LoadTestProfile.class)
+@EnabledIfSystemProperty(named = "ping.load", matches = "true")
+class IdeWorkloadLoadTest {
+    private static final int USERS = Integer.getInteger("ping.load.users", 16);
+    private static final int DURATION_SECONDS = Integer.getInteger("ping.load.duration", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("ping.load.warmup", 5);
+    private static final int FILES_PER_PROJECT = Integer.getInteger("ping.load.files", 50);
+    private static final String OUTPUT = System.getProperty("ping.load.output", "target/load-report.json");
+
+    @TestHTTPResource("/")
+    URI baseUri;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+
+    private record Session(String login, String token, String userId, String projectId) {}
+
+    private static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    @Test
+    void ideWorkload() throws Exception {
+        String adminToken = login("admin.user", "admin123");
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            sessions.add(provision(adminToken, i));
+        }
+
+        run(sessions, WARMUP_SECONDS);
+        stats.clear();
+        sessionFactory.getStatistics().clear();
+        measuring = true;
+        long start = System.nanoTime();
+        run(sessions, DURATION_SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        writeReport(elapsedSeconds);
+        assertThat(stats).isNotEmpty();
+    }
+
+    private Session provision(String adminToken, int n) throws Exception {
+        String login = "load.user" + n;
+        JsonNode user = json(send(null, post("/api/user", adminToken,
+                "{\"login\":\"" + login + "\",\"password\":\"secret\"}")));
+        String userId = user.get("id").asText();
+        String token = login(login, "secret");
+        JsonNode project = json(send(null, post("/api/projects", token, "{\"name\":\"project " + n + "\"}")));
+        String projectId = project.get("id").asText();
+
+        send(null, post("/api/projects/" + projectId + "/exec", token,
+                "{\"feature\":\"git\",\"command\":\"init\",\"params\":[]}"));
+        for (int f = 0; f < FILES_PER_PROJECT; f++) {
+            send(null, upload(projectId, token, "src/File" + f + ".java", source(f, 0)));
+        }
+        return new Session(login, token, userId, projectId);
+    }
+
+    private void run(List<Session> sessions, int seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Session session : sessions) {
+                futures.add(users.submit(() -> {
+                    for (int i = 0; System.nanoTime() < deadline; i++) {
+                        iteration(session, i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    /**
+     * One round of editor activity, weighted like a real session: mostly browsing and reading,
+     * a save every round, a git add/commit every tenth round and a page reload (login, user, projects)
+     * every twentieth.
+     */
+    private void iteration(Session s, int i) throws Exception {
+        String p = "/api/projects/" + s.projectId();
+        int file = i % FILES_PER_PROJECT;
+
+        if (i % 20 == 0) {
+            send("POST /api/user/login", post("/api/user/login", null,
+                    "{\"login\":\"" + s.login() + "\",\"password\":\"secret\"}"));
+            send("GET /api/user/{id}", get("/api/user/" + s.userId(), s.token()));
+            send("GET /api/projects", get("/api/projects", s.token()));
+            send("GET /api/projects/{id}", get(p, s.token()));
+        }
+        send("GET /api/projects/{id}/folders", get(p + "/folders?path=", s.token()));
+        send("GET /api/projects/{id}/folders", get(p + "/folders?path=src", s.token()));
+        send("GET /api/projects/{id}/files", get(p + "/files?path=" + encode("src/File" + file + ".java"), s.token()));
+        send("POST /api/projects/{id}/files/upload", upload(s.projectId(), s.token(), "src/File" + file + ".java",
+                source(file, i)));
+
+        if (i % 10 == 9) {
+            send("POST /api/projects/{id}/exec add", post(p + "/exec", s.token(),
+                    "{\"feature\":\"git\",\"command\":\"add\",\"params\":[\"src/File" + file + ".java\"]}"));
+            send("POST /api/projects/{id}/exec commit", post(p + "/exec", s.token(),
+                    "{\"feature\":\"git\",\"command\":\"commit\",\"params\":[\"edit " + i + "\"]}"));
+        }
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        long micros = (System.nanoTime() - start) / 1_000;
+        if (endpoint != null && measuring) {
+            Stats s = stats.computeIfAbsent(endpoint, e -> new Stats());
+            s.latency.record(micros);
+            if (response.statusCode() >= 400) {
+                s.errors.increment();
+            }
+        }
+        return response;
+    }
+
+    private String login(String login, String password) throws Exception {
+        HttpResponse<String> response = send(null, post("/api/user/login", null,
+                "{\"login\":\"" + login + "\",\"password\":\"" + password + "\"}"));
+        assertThat(response.statusCode()).isEqualTo(200);
+        return json(response).get("token").asText();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String token, String body) {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest upload(String projectId, String token, String path, byte[] content) {
+        return request("/api/projects/" + projectId + "/files/upload?path=" + encode(path), token)
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(content))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path)).timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws IOException {
+        return response.body() == null || response.body().isEmpty() ? null : mapper.readTree(response.body());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] source(int file, int revision) {
+        StringBuilder out = new StringBuilder("public class File").append(file).append(" {\n");
+        for (int line = 0; line < 60; line++) {
+            out.append("    int field").append(line).append(" = ").append(revision).append(";\n");
+        }
+        return out.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void writeReport(double elapsedSeconds) throws IOException {
+        Map<String, Object> endpoints = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            total += latency.count();
+            endpoints.put(entry.getKey(), Map.of(
+                    "count", latency.count(),
+                    "errors", entry.getValue().errors.sum(),
+                    "throughputPerSecond", latency.count() / elapsedSeconds,
+                    "meanMs", latency.count() == 0 ? 0 : latency.sumMicros() / 1000.0 / latency.count(),
+                    "p50Ms", latency.valueAtQuantile(0.50) / 1000.0,
+                    "p99Ms", latency.valueAtQuantile(0.99) / 1000.0,
+                    "p999Ms", latency.valueAtQuantile(0.999) / 1000.0
+            ));
+        }
+
+        Map<String, Object> report = new TreeMap<>();
+        report.put("users", USERS);
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("requests", total);
+        report.put("throughputPerSecond", total / elapsedSeconds);
+        report.put("endpoints", endpoints);
+
+        Statistics db = sessionFactory.getStatistics();
+        long l2Lookups = db.getSecondLevelCacheHitCount() + db.getSecondLevelCacheMissCount();
+        report.put("database", Map.of(
+                "statements", db.getPrepareStatementCount(),
+                "statementsPerRequest", total == 0 ? 0 : (double) db.getPrepareStatementCount() / total,
+                "entityLoads", db.getEntityLoadCount(),
+                "secondLevelCacheHits", db.getSecondLevelCacheHitCount(),
+                "secondLevelCacheHitRatio", l2Lookups == 0 ? 0 : (double) db.getSecondLevelCacheHitCount() / l2Lookups,
+                "queryCacheHits", db.getQueryCacheHitCount()
+        ));
+
+        Path output = Paths.get(OUTPUT);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        mapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+    }
+}
@@ -0,0 +1,44 @@
+package fr.epita.assistants.ping.load;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Runs the application against an in-memory H2 database in PostgreSQL mode and a throw-away
+ * PROJECT_DEFAULT_PATH, so the load harness needs neither a database server nor /tmp/ping.
+ * {@code -Dping.load.l2-cache=false} turns the second-level cache off, to compare the database
+ * round-trips of the same workload with and without it.
+ */
+public class LoadTestProfile implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        Path root;
+        try {
+            root = Files.createTempDirectory("ping-load");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Map.ofEntries(
+                Map.entry("quarkus.datasource.db-kind", "h2"),
+                Map.entry("quarkus.datasource.username", "sa"),
+                Map.entry("quarkus.datasource.jdbc.url",
+                        "jdbc:h2:mem:ping;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"),
+                Map.entry("quarkus.datasource.jdbc.max-size", "64"),
+                Map.entry("quarkus.hibernate-orm.database.generation", "drop-and-create"),
+                Map.entry("quarkus.hibernate-orm.sql-load-script", "load-test.sql"),
+                Map.entry("quarkus.hibernate-orm.statistics", "true"),
+                Map.entry("quarkus.hibernate-orm.second-level-caching-enabled",
+                        System.getProperty("ping.load.l2-cache", "true")),
+                Map.entry("PROJECT_DEFAULT_PATH", root.resolve("projects") + "/"),
+                Map.entry("LOG_FILE", root.resolve("logs/app.log").toString()),
+                Map.entry("ERROR_LOG_FILE", root.resolve("logs/error.log").toString()),
+                Map.entry("ping.audit.dir", root.resolve("audit").toString())
+        );
+    }
+}
@@ -0,0 +1,202 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.ApiClient;
+import fr.epita.assistants.ping.ApiTestProfile;
+import fr.epita.assistants.ping.data.model.ProjectModel;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static fr.epita.assistants.ping.ApiClient.encode;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@QuarkusTest
+@TestProfile(ApiTestProfile.class)
+class FileResourceTest {
+
+    @TestHTTPResource("/")
+    URI baseUri;
+
+    @ConfigProperty(name = "PROJECT_DEFAULT_PATH")
+    String projectDefaultPath;
+
+    private ApiClient api;
+
+    @BeforeEach
+    void client() {
+        api = new ApiClient(baseUri);
+    }
+
+    /**
+     * Single and multiple byte ranges of a file read, 416 past the end, and If-Range falling back
+     * to the whole file once the file has changed or its date is too recent to compare.
+     */
+    @Test
+    void rangeReads() throws Exception {
+        String adminToken = api.loginAdmin();
+        String projectId = api.createProject(adminToken, "ranged");
+        api.send(api.upload(projectId, adminToken, "log.txt", "0123456789abcdef".getBytes(StandardCharsets.UTF_8)));
+        String file = "/api/projects/" + projectId + "/files?path=log.txt";
+
+        HttpResponse<String> first = api.send(ranged(file, adminToken, "bytes=2-5").build());
+        assertThat(first.statusCode()).isEqualTo(206);
+        assertThat(first.body()).isEqualTo("2345");
+        assertThat(first.headers().firstValue("Content-Range")).hasValue("bytes 2-5/16");
+
+        HttpResponse<String> tail = api.send(ranged(file, adminToken, "bytes=-3").build());
+        assertThat(tail.body()).isEqualTo("def");
+
+        HttpResponse<String> parts = api.send(ranged(file, adminToken, "bytes=0-1,10-").build());
+        assertThat(parts.statusCode()).isEqualTo(206);
+        assertThat(parts.headers().firstValue("Content-Type").orElseThrow()).startsWith("multipart/byteranges");
+        assertThat(parts.body()).contains("Content-Range: bytes 0-1/16\r\n\r\n01\r\n",
+                "Content-Range: bytes 10-15/16\r\n\r\nabcdef\r\n");
+
+        HttpResponse<String> beyond = api.send(ranged(file, adminToken, "bytes=100-").build());
+        assertThat(beyond.statusCode()).isEqualTo(416);
+        assertThat(beyond.headers().firstValue("Content-Range")).hasValue("bytes */16");
+
+        String tag = first.headers().firstValue("ETag").orElseThrow();
+        assertThat(api.send(ranged(file, adminToken, "bytes=0-0").header("If-Range", tag).build())
+                .statusCode()).isEqualTo(206);
+        assertThat(api.send(ranged(file, adminToken, "bytes=0-0")
+                .header("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT").build()).statusCode()).isEqualTo(200);
+
+        // a date is only a strong validator once it is a second older than the response
+        Path path = projectPath(projectId).resolve("log.txt");
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+        String old = api.send(api.get(file, adminToken)).headers().firstValue("Last-Modified").orElseThrow();
+        assertThat(api.send(ranged(file, adminToken, "bytes=0-0").header("If-Range", old).build())
+                .statusCode()).isEqualTo(206);
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().plus(1, ChronoUnit.HOURS)));
+        String recent = api.send(api.get(file, adminToken)).headers().firstValue("Last-Modified").orElseThrow();
+        assertThat(api.send(ranged(file, adminToken, "bytes=0-0").header("If-Range", recent).build())
+                .statusCode()).isEqualTo(200);
+    }
+
+    /**
+     * File and folder validators come from the file attributes: a 304 until the file is rewritten
+     * or an entry is added to the folder.
+     */
+    @Test
+    void conditionalFileReads() throws Exception {
+        String adminToken = api.loginAdmin();
+        String projectId = api.createProject(adminToken, "revalidated");
+        api.send(api.upload(projectId, adminToken, "src/Main.java", source(0)));
+        String file = "/api/projects/" + projectId + "/files?path=" + encode("src/Main.java");
+        String folder = "/api/projects/" + projectId + "/folders?path=src";
+
+        String fileTag = assertRevalidated(file, adminToken);
+        String folderTag = assertRevalidated(folder, adminToken);
+        String lastModified = api.send(api.get(file, adminToken)).headers().firstValue("Last-Modified").orElseThrow();
+        assertThat(api.send(api.request(file, adminToken).header("If-Modified-Since", lastModified).GET().build())
+                .statusCode()).isEqualTo(304);
+
+        api.send(api.upload(projectId, adminToken, "src/Main.java", source(1)));
+        assertThat(api.send(conditional(file, adminToken, fileTag)).statusCode()).isEqualTo(200);
+
+        api.send(api.upload(projectId, adminToken, "src/Other.java", source(0)));
+        assertThat(api.send(conditional(folder, adminToken, folderTag)).statusCode()).isEqualTo(200);
+    }
+
+    /**
+     * An upload answers with the content digest as ETag, and getFile revalidates against it without
+     * reading the file, also after the same content is uploaded again.
+     */
+    @Test
+    void checksummedUpload() throws Exception {
+        String adminToken = api.loginAdmin();
+        // without user xattrs there is no recorded digest, only attribute validators
+        assumeTrue(Files.getFileStore(Paths.get(projectDefaultPath)).supportsFileAttributeView("user"));
+        String projectId = api.createProject(adminToken, "checksummed");
+        byte[] content = source(0);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        HttpResponse<String> uploaded = api.send(api.upload(projectId, adminToken, "src/Main.java", content));
+        assertThat(uploaded.statusCode()).isEqualTo(201);
+        assertThat(api.json(uploaded).get("sha256").asText()).isEqualTo(sha256);
+        String tag = uploaded.headers().firstValue("ETag").orElseThrow();
+
+        String file = "/api/projects/" + projectId + "/files?path=" + encode("src/Main.java");
+        assertThat(api.send(api.get(file, adminToken)).headers().firstValue("ETag")).hasValue(tag);
+
+        api.send(api.upload(projectId, adminToken, "src/Main.java", content));
+        assertThat(api.send(conditional(file, adminToken, tag)).statusCode()).isEqualTo(304);
+    }
+
+    /**
+     * A HEAD runs the GET method but never writes its streamed body: the IO slots held for that body
+     * must still come back, or a few HEADs would leave the project's file endpoints answering 503.
+     */
+    @Test
+    void headReleasesIoSlots() throws Exception {
+        String adminToken = api.loginAdmin();
+        String projectId = api.createProject(adminToken, "probed");
+        api.send(api.upload(projectId, adminToken, "src/Main.java", source(0)));
+        String file = "/api/projects/" + projectId + "/files?path=" + encode("src/Main.java");
+        String folder = "/api/projects/" + projectId + "/folders?path=src";
+
+        // twice the default ping.io.per-project
+        for (int i = 0; i < 8; i++) {
+            assertThat(api.send(api.request(file, adminToken).method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build()).statusCode()).isEqualTo(200);
+            assertThat(api.send(api.request(folder, adminToken).method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build()).statusCode()).isEqualTo(200);
+        }
+
+        HttpResponse<String> read = api.send(api.get(file, adminToken));
+        assertThat(read.statusCode()).isEqualTo(200);
+        assertThat(read.body()).isEqualTo(new String(source(0), StandardCharsets.UTF_8));
+        assertThat(api.send(api.get(folder, adminToken)).statusCode()).isEqualTo(200);
+    }
+
+    private String assertRevalidated(String path, String token) throws Exception {
+        HttpResponse<String> response = api.send(api.get(path, token));
+        assertThat(response.statusCode()).isEqualTo(200);
+        String tag = response.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> revalidated = api.send(conditional(path, token, tag));
+        assertThat(revalidated.statusCode()).isEqualTo(304);
+        assertThat(revalidated.body()).isEmpty();
+        return tag;
+    }
+
+    private HttpRequest conditional(String path, String token, String tag) {
+        return api.request(path, token).header("If-None-Match", tag).GET().build();
+    }
+
+    private static Path projectPath(String projectId) {
+        return Paths.get(QuarkusTransaction.requiringNew().call(() ->
+                ProjectModel.<ProjectModel>findById(UUID.fromString(projectId)).getPath()));
+    }
+
+    private HttpRequest.Builder ranged(String path, String token, String range) {
+        return api.request(path, token).header("Range", range).GET();
+    }
+
+    private static byte[] source(int revision) {
+        StringBuilder out = new StringBuilder("public class Main {\n");
+        for (int line = 0; line < 60; line++) {
+            out.append("    int field").append(line).append(" = ").append(revision).append(";\n");
+        }
+        return out.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,74 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.ApiClient;
+import fr.epita.assistants.ping.ApiTestProfile;
+import fr.epita.assistants.ping.data.model.ProjectModel;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+@QuarkusTest
+@TestProfile(ApiTestProfile.class)
+class FolderResourceTest {
+
+    @TestHTTPResource("/")
+    URI baseUri;
+
+    private ApiClient api;
+
+    @BeforeEach
+    void client() {
+        api = new ApiClient(baseUri);
+    }
+
+    /**
+     * The listing streams after the status is sent, so what cannot be listed is refused before it:
+     * an error status with an ErrorInfo body, never a truncated 200.
+     */
+    @Test
+    void unlistableFolders() throws Exception {
+        String adminToken = api.loginAdmin();
+        String projectId = api.createProject(adminToken, "listed folders");
+        api.send(api.upload(projectId, adminToken, "src/Main.java", "class Main {}".getBytes(StandardCharsets.UTF_8)));
+        String folders = "/api/projects/" + projectId + "/folders?path=";
+
+        HttpResponse<String> missing = api.send(api.get(folders + "nowhere", adminToken));
+        assertThat(missing.statusCode()).isEqualTo(404);
+        assertThat(api.json(missing).has("message")).isTrue();
+        assertThat(api.send(api.get(folders + ApiClient.encode("src/Main.java"), adminToken)).statusCode())
+                .isEqualTo(404);
+
+        // root reads anything, the permission check only means something for other users
+        assumeFalse("root".equals(System.getProperty("user.name")));
+        Path locked = projectPath(projectId).resolve("locked");
+        Files.createDirectory(locked);
+        Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("---------"));
+        try {
+            HttpResponse<String> denied = api.send(api.get(folders + "locked", adminToken));
+            assertThat(denied.statusCode()).isEqualTo(500);
+            assertThat(api.json(denied).has("message")).isTrue();
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+
+    private static Path projectPath(String projectId) {
+        return Paths.get(QuarkusTransaction.requiringNew().call(() ->
+                ProjectModel.<ProjectModel>findById(UUID.fromString(projectId)).getPath()));
+    }
+}
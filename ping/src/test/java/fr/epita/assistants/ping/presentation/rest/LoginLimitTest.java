@@ -0,0 +1,64 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.ApiClient;
+import fr.epita.assistants.ping.ApiTestProfile;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs in its own application: it uses up the failure budget of the test client's address.
+ */
+@QuarkusTest
+@TestProfile(LoginLimitTest.Profile.class)
+class LoginLimitTest {
+
+    public static class Profile extends ApiTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            Map<String, String> overrides = new HashMap<>(super.getConfigOverrides());
+            overrides.put("ping.login.max-failures-per-address", "10");
+            return overrides;
+        }
+    }
+
+    @TestHTTPResource("/")
+    URI baseUri;
+
+    private ApiClient api;
+
+    @BeforeEach
+    void client() {
+        api = new ApiClient(baseUri);
+    }
+
+    /**
+     * One address trying a different login each time never fails twice on the same one, yet is
+     * refused before any hashing once it spent its budget, even for a valid login.
+     */
+    @Test
+    void rotatingLoginsFromOneAddress() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(attempt("sprayed.user" + i, "guess").statusCode()).isEqualTo(401);
+        }
+
+        HttpResponse<String> blocked = attempt("sprayed.user10", "guess");
+        assertThat(blocked.statusCode()).isEqualTo(429);
+        assertThat(blocked.headers().firstValue("Retry-After")).isPresent();
+        assertThat(attempt(ApiClient.ADMIN_LOGIN, ApiClient.ADMIN_PASSWORD).statusCode()).isEqualTo(429);
+    }
+
+    private HttpResponse<String> attempt(String login, String password) throws Exception {
+        return api.send(api.post("/api/user/login", null,
+                "{\"login\":\"" + login + "\",\"password\":\"" + password + "\"}"));
+    }
+}
@@ -0,0 +1,226 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import fr.epita.assistants.ping.ApiClient;
+import fr.epita.assistants.ping.ApiTestProfile;
+import fr.epita.assistants.ping.data.model.ProjectModel;
+import fr.epita.assistants.ping.data.model.UserModel;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@TestProfile(ApiTestProfile.class)
+class ProjectResourceTest {
+
+    @TestHTTPResource("/")
+    URI baseUri;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private ApiClient api;
+
+    @BeforeEach
+    void client() {
+        api = new ApiClient(baseUri);
+    }
+
+    /**
+     * Owners and members come from projections fetched in bulk, so 1000 projects (one member each)
+     * must not cost one query per project.
+     */
+    @Test
+    void projectListingStatementCount() throws Exception {
+        String adminToken = api.loginAdmin();
+        QuarkusTransaction.requiringNew().run(() -> {
+            UserModel owner = UserModel.find("login", ApiClient.ADMIN_LOGIN).firstResult();
+            for (int i = 0; i < 1000; i++) {
+                ProjectModel.create("listed " + i, owner, "/nonexistent/").persist();
+            }
+        });
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        HttpResponse<String> response = api.send(api.get("/api/projects/all?limit=1000", adminToken));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(api.json(response).size()).isEqualTo(1000);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    /**
+     * The unpaginated listing streams: one scrolled query for the projects, then one member query
+     * per batch of 1000 projects, however many there are.
+     */
+    @Test
+    void streamedProjectListingStatementCount() throws Exception {
+        String adminToken = api.loginAdmin();
+        QuarkusTransaction.requiringNew().run(() -> {
+            UserModel owner = UserModel.find("login", ApiClient.ADMIN_LOGIN).firstResult();
+            for (int i = 0; i < 2500; i++) {
+                ProjectModel.create("streamed " + i, owner, "/nonexistent/").persist();
+            }
+        });
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        HttpResponse<String> response = api.send(api.get("/api/projects/all", adminToken));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        int listed = api.json(response).size();
+        assertThat(listed).isGreaterThanOrEqualTo(2500);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1 + (listed + 999) / 1000);
+    }
+
+    /**
+     * Onboarding a class adds 300 members in one call; the join table rows go out in JDBC batches.
+     */
+    @Test
+    void bulkMembershipStatementCount() throws Exception {
+        String adminToken = api.loginAdmin();
+        String projectId = api.createProject(adminToken, "class");
+        List<String> ids = QuarkusTransaction.requiringNew().call(() -> {
+            List<String> created = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                UserModel student = new UserModel();
+                student.setLogin("class.student" + i);
+                student.setPassword("unused");
+                student.persist();
+                created.add("\"" + student.getId() + "\"");
+            }
+            return created;
+        });
+        String body = "{\"userIds\":[" + String.join(",", ids) + "]}";
+        String project = "/api/projects/" + projectId;
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        HttpResponse<String> added = api.send(api.post(project + "/add-users", adminToken, body));
+
+        assertThat(added.statusCode()).isEqualTo(204);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(16);
+        assertThat(api.json(api.send(api.get(project, adminToken))).get("members").size()).isEqualTo(301);
+
+        HttpResponse<String> removed = api.send(api.post(project + "/remove-users", adminToken, body));
+        assertThat(removed.statusCode()).isEqualTo(204);
+        assertThat(api.json(api.send(api.get(project, adminToken))).get("members").size()).isEqualTo(1);
+    }
+
+    /**
+     * A roll-out of 200 projects with a starter file: batched inserts, every directory provisioned.
+     */
+    @Test
+    void batchProjectCreation() throws Exception {
+        String adminToken = api.loginAdmin();
+        String adminId = QuarkusTransaction.requiringNew().call(() ->
+                UserModel.<UserModel>find("login", ApiClient.ADMIN_LOGIN).firstResult().getId().toString());
+        StringBuilder body = new StringBuilder("{\"files\":{\"README.md\":\"# Welcome\\n\"},\"projects\":[");
+        for (int i = 0; i < 200; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"name\":\"rollout ").append(i)
+                    .append("\",\"ownerId\":\"").append(adminId).append("\"}");
+        }
+        body.append("]}");
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        HttpResponse<String> response = api.send(api.post("/api/projects/batch", adminToken, body.toString()));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode projects = api.json(response);
+        assertThat(projects.size()).isEqualTo(200);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(16);
+        String path = QuarkusTransaction.requiringNew().call(() ->
+                ProjectModel.<ProjectModel>findById(UUID.fromString(projects.get(199).get("id").asText())).getPath());
+        assertThat(Files.readString(Paths.get(path, "README.md"))).isEqualTo("# Welcome\n");
+    }
+
+    /**
+     * Starter file keys that normalise to the project directory itself are refused before anything is created.
+     */
+    @Test
+    void batchRejectsEmptyStarterPath() throws Exception {
+        String adminToken = api.loginAdmin();
+        String adminId = QuarkusTransaction.requiringNew().call(() ->
+                UserModel.<UserModel>find("login", ApiClient.ADMIN_LOGIN).firstResult().getId().toString());
+        for (String key : List.of(".", "a/..")) {
+            String body = "{\"files\":{\"" + key + "\":\"x\"},\"projects\":[{\"name\":\"starter\",\"ownerId\":\""
+                    + adminId + "\"}]}";
+            assertThat(api.send(api.post("/api/projects/batch", adminToken, body)).statusCode()).isEqualTo(400);
+        }
+    }
+
+    /**
+     * Project and user ETags hold until the project, its membership or a user it shows changes.
+     */
+    @Test
+    void conditionalGet() throws Exception {
+        String adminToken = api.loginAdmin();
+        String projectId = api.createProject(adminToken, "polled");
+        String memberId = api.createUser(adminToken, "polled.member", "secret");
+        String project = "/api/projects/" + projectId;
+        String user = "/api/user/" + memberId;
+
+        String projectTag = assertRevalidated(project, adminToken);
+        String userTag = assertRevalidated(user, adminToken);
+
+        api.send(api.post(project + "/add-user", adminToken, "{\"userId\":\"" + memberId + "\"}"));
+        assertThat(api.send(conditional(project, adminToken, projectTag)).statusCode()).isEqualTo(200);
+        projectTag = assertRevalidated(project, adminToken);
+
+        api.send(api.put(user, adminToken, "{\"displayName\":\"Renamed Member\"}"));
+        assertThat(api.send(conditional(user, adminToken, userTag)).statusCode()).isEqualTo(200);
+        assertThat(api.send(conditional(project, adminToken, projectTag)).statusCode()).isEqualTo(200);
+    }
+
+    /**
+     * A polled project list answers 304 from the change counter, until a project or user changes.
+     */
+    @Test
+    void conditionalListing() throws Exception {
+        String adminToken = api.loginAdmin();
+        api.createProject(adminToken, "listed first");
+
+        Statistics statistics = sessionFactory.getStatistics();
+        String tag = assertRevalidated("/api/projects", adminToken);
+        statistics.clear();
+        assertThat(api.send(conditional("/api/projects", adminToken, tag)).statusCode()).isEqualTo(304);
+        long revalidation = statistics.getPrepareStatementCount();
+
+        api.createProject(adminToken, "listed second");
+        assertThat(api.send(conditional("/api/projects", adminToken, tag)).statusCode()).isEqualTo(200);
+        // no listing query behind a 304, whatever authentication costs
+        assertThat(revalidation).isLessThanOrEqualTo(1);
+    }
+
+    private String assertRevalidated(String path, String token) throws Exception {
+        HttpResponse<String> response = api.send(api.get(path, token));
+        assertThat(response.statusCode()).isEqualTo(200);
+        String tag = response.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> revalidated = api.send(conditional(path, token, tag));
+        assertThat(revalidated.statusCode()).isEqualTo(304);
+        assertThat(revalidated.body()).isEmpty();
+        return tag;
+    }
+
+    private HttpRequest conditional(String path, String token, String tag) {
+        return api.request(path, token).header("If-None-Match", tag).GET().build();
+    }
+}
@@ -0,0 +1,119 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import fr.epita.assistants.ping.ApiClient;
+import fr.epita.assistants.ping.ApiTestProfile;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static fr.epita.assistants.ping.ApiClient.encode;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@TestProfile(ApiTestProfile.class)
+class UploadResourceTest {
+
+    @TestHTTPResource("/")
+    URI baseUri;
+
+    @ConfigProperty(name = "PROJECT_DEFAULT_PATH")
+    String projectDefaultPath;
+
+    private ApiClient api;
+
+    @BeforeEach
+    void client() {
+        api = new ApiClient(baseUri);
+    }
+
+    /**
+     * Chunks of an upload session sent out of order and concurrently, a short chunk refused, and the
+     * file only in place once the session is completed.
+     */
+    @Test
+    void resumableUpload() throws Exception {
+        String adminToken = api.loginAdmin();
+        String projectId = api.createProject(adminToken, "uploaded");
+        String uploads = "/api/projects/" + projectId + "/uploads";
+        JsonNode session = api.json(api.send(api.post(uploads, adminToken,
+                "{\"relativePath\":\"assets/blob.bin\",\"size\":10,\"chunkSize\":4}")));
+        assertThat(session.get("chunkCount").asInt()).isEqualTo(3);
+        String upload = uploads + "/" + session.get("id").asText();
+
+        assertThat(api.send(chunk(upload, adminToken, 2, "89AB")).statusCode()).isEqualTo(400);
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<HttpResponse<String>> last = senders.submit(() -> api.send(chunk(upload, adminToken, 2, "89")));
+            Future<HttpResponse<String>> first = senders.submit(() -> api.send(chunk(upload, adminToken, 0, "0123")));
+            assertThat(last.get().statusCode()).isEqualTo(204);
+            assertThat(first.get().statusCode()).isEqualTo(204);
+        }
+        assertThat(api.json(api.send(api.get(upload, adminToken))).get("received").toString()).isEqualTo("[0,2]");
+        assertThat(api.send(api.post(upload + "/complete", adminToken, "")).statusCode()).isEqualTo(409);
+
+        api.send(chunk(upload, adminToken, 1, "4567"));
+        HttpResponse<String> completed = api.send(api.post(upload + "/complete", adminToken, ""));
+        assertThat(completed.statusCode()).isEqualTo(201);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest("0123456789".getBytes(StandardCharsets.US_ASCII)));
+        assertThat(api.json(completed).get("relativePath").asText()).isEqualTo("assets/blob.bin");
+        assertThat(api.json(completed).get("size").asLong()).isEqualTo(10);
+        assertThat(api.json(completed).get("sha256").asText()).isEqualTo(sha256);
+        String tag = completed.headers().firstValue("ETag").orElseThrow();
+        assertThat(api.send(api.get(upload, adminToken)).statusCode()).isEqualTo(404);
+        HttpResponse<String> file = api.send(api.get("/api/projects/" + projectId + "/files?path="
+                + encode("assets/blob.bin"), adminToken));
+        assertThat(file.body()).isEqualTo("0123456789");
+        // the recorded digest is the file's validator, as after a single-shot upload (needs user xattrs)
+        if (Files.getFileStore(Paths.get(projectDefaultPath)).supportsFileAttributeView("user")) {
+            assertThat(file.headers().firstValue("ETag")).hasValue(tag);
+        }
+    }
+
+    /**
+     * A user cannot hold more than {@code ping.upload.max-sessions-per-user} sessions open, and
+     * aborting one frees its place.
+     */
+    @Test
+    void sessionLimit() throws Exception {
+        String adminToken = api.loginAdmin();
+        api.createUser(adminToken, "many.uploads", "secret");
+        String token = api.login("many.uploads", "secret");
+        String uploads = "/api/projects/" + api.createProject(token, "limited") + "/uploads";
+
+        String first = null;
+        for (int i = 0; i < 8; i++) {
+            HttpResponse<String> opened = api.send(api.post(uploads, token,
+                    "{\"relativePath\":\"part" + i + ".bin\",\"size\":1024}"));
+            assertThat(opened.statusCode()).isEqualTo(201);
+            first = first != null ? first : api.json(opened).get("id").asText();
+        }
+        String extra = "{\"relativePath\":\"extra.bin\",\"size\":1024}";
+        assertThat(api.send(api.post(uploads, token, extra)).statusCode()).isEqualTo(429);
+
+        api.send(api.request(uploads + "/" + first, token).DELETE().build());
+        assertThat(api.send(api.post(uploads, token, extra)).statusCode()).isEqualTo(201);
+    }
+
+    private HttpRequest chunk(String upload, String token, int index, String content) {
+        return api.request(upload + "/chunks/" + index, token)
+                .header("Content-Type", "application/octet-stream")
+                .PUT(HttpRequest.BodyPublishers.ofString(content))
+                .build();
+    }
+}
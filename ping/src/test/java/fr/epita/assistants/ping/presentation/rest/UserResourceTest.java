@@ -0,0 +1,98 @@
+package fr.epita.assistants.ping.presentation.rest;
+
+import fr.epita.assistants.ping.ApiClient;
+import fr.epita.assistants.ping.ApiTestProfile;
+import fr.epita.assistants.ping.data.model.UserModel;
+import fr.epita.assistants.ping.service.TokenRevocations;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@TestProfile(ApiTestProfile.class)
+class UserResourceTest {
+
+    @TestHTTPResource("/")
+    URI baseUri;
+
+    @Inject
+    TokenRevocations revocations;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private ApiClient api;
+
+    @BeforeEach
+    void client() {
+        api = new ApiClient(baseUri);
+    }
+
+    /**
+     * The unpaginated user listing is a single scrolled query, however many users there are.
+     */
+    @Test
+    void streamedUserListingStatementCount() throws Exception {
+        String adminToken = api.loginAdmin();
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (int i = 0; i < 2500; i++) {
+                UserModel user = new UserModel();
+                user.setLogin("streamed.user" + i);
+                user.setPassword("unused");
+                user.persist();
+            }
+        });
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        HttpResponse<String> response = api.send(api.get("/api/user/all", adminToken));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(api.json(response).size()).isGreaterThanOrEqualTo(2500);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1);
+    }
+
+    /**
+     * A corrupt stored hash is a wrong password, not a server error.
+     */
+    @Test
+    void malformedStoredHash() throws Exception {
+        QuarkusTransaction.requiringNew().run(() -> {
+            UserModel user = new UserModel();
+            user.setLogin("corrupt.hash");
+            user.setPassword("pbkdf2$many$c2FsdA==$aGFzaA==");
+            user.persist();
+        });
+
+        assertThat(api.send(api.post("/api/user/login", null,
+                "{\"login\":\"corrupt.hash\",\"password\":\"secret\"}")).statusCode()).isEqualTo(401);
+    }
+
+    /**
+     * A revocation rejects the tokens issued before it, not one issued right after it in the same second.
+     */
+    @Test
+    void loginRightAfterRevocation() throws Exception {
+        String admin = api.loginAdmin();
+        String id = api.createUser(admin, "revoked.user", "secret");
+        String before = api.login("revoked.user", "secret");
+
+        revocations.revoke(UUID.fromString(id));
+        String after = api.login("revoked.user", "secret");
+
+        assertThat(api.send(api.get("/api/user/" + id, before)).statusCode()).isEqualTo(401);
+        assertThat(api.send(api.get("/api/user/" + id, after)).statusCode()).isEqualTo(200);
+    }
+}
@@ -0,0 +1,3 @@
+-- Admin of the API tests (same account as import.sql), hashed with the test profile's 1000 iterations
+INSERT INTO users (id, login, password, display_name, avatar, is_admin)
+VALUES ('00000000-0000-0000-0000-000000000001', 'admin.user', 'pbkdf2$1000$xjgEWr1nh62Ku0Yvitr7cw==$fpD7jiR2LEMc7idAw8y0n6gNj5HDZxmYT1mMcttjw1o=', 'Admin User', '', true);
@@ -0,0 +1,3 @@
+-- Admin used by the load harness to provision its users (same account as import.sql)
+INSERT INTO users (id, login, password, display_name, avatar, is_admin)
+VALUES ('00000000-0000-0000-0000-000000000001', 'admin.user', 'pbkdf2$600000$1AA+jq4JdJsrTrfkXlPWgQ==$Mza+0jUWu3O0V7qsQTqA1Zl6M5HGda6z9rXh1z14pfg=', 'Admin User', '', true);